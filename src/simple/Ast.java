@@ -1,6 +1,7 @@
 package simple;
 
 import java.util.List;
+import java.util.function.Supplier;
 //import java.util.stream.Collectors;
 
 // --- Helper for indentation ---
@@ -13,11 +14,50 @@ class Indent {
 interface AstNode {
     String toString(int indent);
 
+    // Position.of the node's token: the name of a declaration, call or
+    // assignment, the operator of a binary expression, otherwise the first
+    // token. Position.NONE if unknown.
+    long position();
+
     @Override
     String toString();
 }
 
+// Visitors over statements and expressions. Passes implement these instead of
+// testing node classes with instanceof, so adding a node type breaks every
+// pass that has not handled it. X lets a pass declare the checked exception
+// it throws (use RuntimeException for none).
+interface StmtVisitor<R, X extends Exception> {
+    R visitVarDecl(VarDecl stmt) throws X;
+    R visitBlock(BlockStmt stmt) throws X;
+    R visitAssign(AssignStmt stmt) throws X;
+    R visitIf(IfStmt stmt) throws X;
+    R visitLoop(LoopStmt stmt) throws X;
+    R visitReturn(ReturnStmt stmt) throws X;
+}
+
+interface ExprVisitor<R, X extends Exception> {
+    R visitBinary(BinaryExpr expr) throws X;
+    R visitId(IdExpr expr) throws X;
+    R visitIntLiteral(IntLiteral expr) throws X;
+    R visitBoolLiteral(BoolLiteral expr) throws X;
+    R visitFuncCall(FuncCall expr) throws X;
+}
+
 abstract class Stmt implements AstNode {
+    final long position;
+
+    Stmt(long position) {
+        this.position = position;
+    }
+
+    @Override
+    public final long position() {
+        return position;
+    }
+
+    abstract <R, X extends Exception> R accept(StmtVisitor<R, X> visitor) throws X;
+
      @Override
     public final String toString() {
         return toString(0);
@@ -25,6 +65,19 @@ abstract class Stmt implements AstNode {
 }
 
 abstract class Expr implements AstNode {
+    final long position;
+
+    Expr(long position) {
+        this.position = position;
+    }
+
+    @Override
+    public final long position() {
+        return position;
+    }
+
+    abstract <R, X extends Exception> R accept(ExprVisitor<R, X> visitor) throws X;
+
      @Override
     public final String toString() {
         return toString(0);
@@ -43,11 +96,18 @@ class ProgramNode implements AstNode {
     final List<FuncDef> fns;
     final List<VarDecl> globals;
     final List<Stmt> main;
+    final SymbolTable symbols; // names of the symbol ids in this tree
 
-    public ProgramNode(List<FuncDef> fns, List<VarDecl> globals, List<Stmt> main) {
+    public ProgramNode(List<FuncDef> fns, List<VarDecl> globals, List<Stmt> main, SymbolTable symbols) {
         this.fns = fns;
         this.globals = globals;
         this.main = main;
+        this.symbols = symbols;
+    }
+
+    @Override
+    public long position() {
+        return Position.NONE;
     }
 
     @Override
@@ -76,14 +136,23 @@ class ProgramNode implements AstNode {
 }
 
 class VarDecl extends Stmt {
+    final int symbol;
     final String name;
     final Type type;
+    int slot = -1; // set by Resolver
 
-    public VarDecl(String name, Type type) {
+    public VarDecl(int symbol, String name, Type type, long position) {
+        super(position);
+        this.symbol = symbol;
         this.name = name;
         this.type = type;
     }
 
+    @Override
+    <R, X extends Exception> R accept(StmtVisitor<R, X> visitor) throws X {
+        return visitor.visitVarDecl(this);
+    }
+
     @Override
     public String toString(int indent) {
         return String.format("%sVarDecl: %s %s ", Indent.get(indent), type, name);
@@ -91,14 +160,40 @@ class VarDecl extends Stmt {
 }
 
 class FuncDef implements AstNode {
+    final int symbol;
     final String name;
     final List<VarDecl> params;
-    final Stmt body;
+    private Stmt body;
+    private Supplier<Stmt> deferred; // parses the body; null once it has
+    final long position;
+    int slot = -1; // set by Resolver
 
-    public FuncDef(String name, List<VarDecl> params, Stmt body) {
+    public FuncDef(int symbol, String name, List<VarDecl> params, Stmt body, long position) {
+        this.symbol = symbol;
         this.name = name;
         this.params = params;
         this.body = body;
+        this.position = position;
+    }
+
+    // A function whose body is parsed on first use (see DescentParser.lazy).
+    FuncDef(int symbol, String name, List<VarDecl> params, Supplier<Stmt> body, long position) {
+        this(symbol, name, params, (Stmt) null, position);
+        this.deferred = body;
+    }
+
+    // Parsing a deferred body may throw its syntax error here.
+    synchronized Stmt body() {
+        if (deferred != null) {
+            body = deferred.get();
+            deferred = null;
+        }
+        return body;
+    }
+
+    @Override
+    public long position() {
+        return position;
     }
 
     @Override
@@ -110,7 +205,7 @@ class FuncDef implements AstNode {
             sb.append(param.toString(indent));
         }
         sb.append(Indent.get(indent)).append("\nBody:\n");
-        sb.append(body.toString(indent + 1));
+        sb.append(body().toString(indent + 1));
         return sb.toString();
     }
     
@@ -124,11 +219,17 @@ class BlockStmt extends Stmt {
     final List<VarDecl> declarations;
     final List<Stmt> statements;
 
-    public BlockStmt(List<VarDecl> declarations, List<Stmt> statements) {
+    public BlockStmt(List<VarDecl> declarations, List<Stmt> statements, long position) {
+        super(position);
         this.declarations = declarations;
         this.statements = statements;
     }
 
+    @Override
+    <R, X extends Exception> R accept(StmtVisitor<R, X> visitor) throws X {
+        return visitor.visitBlock(this);
+    }
+
     @Override
     public String toString(int indent) {
         StringBuilder sb = new StringBuilder();
@@ -145,14 +246,23 @@ class BlockStmt extends Stmt {
 }
 
 class AssignStmt extends Stmt {
+    final int symbol;
     final String id;
     final Expr expr;
+    int slot = -1; // set by Resolver
 
-    public AssignStmt(String id, Expr expr) {
+    public AssignStmt(int symbol, String id, Expr expr, long position) {
+        super(position);
+        this.symbol = symbol;
         this.id = id;
         this.expr = expr;
     }
     
+    @Override
+    <R, X extends Exception> R accept(StmtVisitor<R, X> visitor) throws X {
+        return visitor.visitAssign(this);
+    }
+
     @Override
     public String toString(int indent) {
         StringBuilder sb = new StringBuilder();
@@ -167,12 +277,18 @@ class IfStmt extends Stmt {
     final Stmt t;
     final Stmt e;
 
-    public IfStmt(Expr conditional, Stmt t, Stmt e) {
+    public IfStmt(Expr conditional, Stmt t, Stmt e, long position) {
+        super(position);
         this.conditional = conditional;
         this.t = t;
         this.e = e;
     }
     
+    @Override
+    <R, X extends Exception> R accept(StmtVisitor<R, X> visitor) throws X {
+        return visitor.visitIf(this);
+    }
+
     @Override
     public String toString(int indent) {
         StringBuilder sb = new StringBuilder();
@@ -193,11 +309,17 @@ class LoopStmt extends Stmt {
     final Expr conditional;
     final Stmt body;
 
-    public LoopStmt(Expr conditional, Stmt body) {
+    public LoopStmt(Expr conditional, Stmt body, long position) {
+        super(position);
         this.conditional = conditional;
         this.body = body;
     }
 
+    @Override
+    <R, X extends Exception> R accept(StmtVisitor<R, X> visitor) throws X {
+        return visitor.visitLoop(this);
+    }
+
     @Override
     public String toString(int indent) {
         StringBuilder sb = new StringBuilder();
@@ -213,10 +335,16 @@ class LoopStmt extends Stmt {
 class ReturnStmt extends Stmt {
     final Expr expr;
 
-    public ReturnStmt(Expr expr) {
+    public ReturnStmt(Expr expr, long position) {
+        super(position);
         this.expr = expr;
     }
 
+    @Override
+    <R, X extends Exception> R accept(StmtVisitor<R, X> visitor) throws X {
+        return visitor.visitReturn(this);
+    }
+
     @Override
     public String toString(int indent) {
         StringBuilder sb = new StringBuilder();
@@ -231,12 +359,18 @@ class BinaryExpr extends Expr {
     final Operator op;
     final Expr right;
 
-    public BinaryExpr(Expr left, Operator op, Expr right) {
+    public BinaryExpr(Expr left, Operator op, Expr right, long position) {
+        super(position);
         this.left = left;
         this.op = op;
         this.right = right;
     }
     
+    @Override
+    <R, X extends Exception> R accept(ExprVisitor<R, X> visitor) throws X {
+        return visitor.visitBinary(this);
+    }
+
     @Override
     public String toString(int indent) {
         StringBuilder sb = new StringBuilder();
@@ -248,12 +382,21 @@ class BinaryExpr extends Expr {
 }
 
 class IdExpr extends Expr {
+    final int symbol;
     final String name;
+    int slot = -1; // set by Resolver
 
-    public IdExpr(String name) {
+    public IdExpr(int symbol, String name, long position) {
+        super(position);
+        this.symbol = symbol;
         this.name = name;
     }
 
+    @Override
+    <R, X extends Exception> R accept(ExprVisitor<R, X> visitor) throws X {
+        return visitor.visitId(this);
+    }
+
     @Override
     public String toString(int indent) {
         return String.format("Id: %s ", name);
@@ -263,10 +406,16 @@ class IdExpr extends Expr {
 class IntLiteral extends Expr {
     final int value;
 
-    public IntLiteral(int value) {
+    public IntLiteral(int value, long position) {
+        super(position);
         this.value = value;
     }
 
+    @Override
+    <R, X extends Exception> R accept(ExprVisitor<R, X> visitor) throws X {
+        return visitor.visitIntLiteral(this);
+    }
+
     @Override
     public String toString(int indent) {
         return String.format("IntLiteral: %d ", value);
@@ -276,10 +425,16 @@ class IntLiteral extends Expr {
 class BoolLiteral extends Expr {
     final boolean value;
 
-    public BoolLiteral(boolean value) {
+    public BoolLiteral(boolean value, long position) {
+        super(position);
         this.value = value;
     }
 
+    @Override
+    <R, X extends Exception> R accept(ExprVisitor<R, X> visitor) throws X {
+        return visitor.visitBoolLiteral(this);
+    }
+
     @Override
     public String toString(int indent) {
         return String.format("BoolLiteral: %b ", value);
@@ -287,14 +442,23 @@ class BoolLiteral extends Expr {
 }
 
 class FuncCall extends Expr {
+    final int symbol;
     final String name;
     final List<Expr> args;
+    int slot = -1; // set by Resolver
 
-    public FuncCall(String name, List<Expr> args) {
+    public FuncCall(int symbol, String name, List<Expr> args, long position) {
+        super(position);
+        this.symbol = symbol;
         this.name = name;
         this.args = args;
     }
 
+    @Override
+    <R, X extends Exception> R accept(ExprVisitor<R, X> visitor) throws X {
+        return visitor.visitFuncCall(this);
+    }
+
     @Override
     public String toString(int indent) {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,148 @@
+package simple;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Checks many files in one JVM, so they share its startup and JIT warm-up.
+// Takes TestTypeChecker's switches, --jobs=<n>, and then files, directories
+// (searched for *.simple) and glob patterns such as "lib/**/*.simple".
+//
+// Files are checked concurrently on a work-stealing pool, largest first, so
+// a big file never starts last and holds up the end. Each file's report is
+// the one TestTypeChecker prints, buffered and printed in the order the
+// files were named (directory and glob matches sorted by path), so the
+// output does not depend on scheduling. A summary line with the throughput
+// ends it. Syntax errors the parsers print to stderr are not kept in order.
+public class BatchChecker {
+
+    public static void main(String[] args) throws Exception {
+        CheckerFlags flags = new CheckerFlags();
+        int jobs = Runtime.getRuntime().availableProcessors();
+        int i = 0;
+        for (; i < args.length; i++) {
+            if (args[i].startsWith("--jobs=")) {
+                jobs = (int) CheckerFlags.number(args[i], "--jobs=", Integer.MAX_VALUE);
+            } else if (!flags.parse(args[i])) {
+                break;
+            }
+        }
+        // A switch that did not parse stops the loop like a file would.
+        if (i == args.length || jobs < 1 || args[i].startsWith("--")) {
+            System.err.println("Usage: java simple.BatchChecker " + CheckerFlags.USAGE + " [--jobs=<threads>] <file|directory|glob>...");
+            System.err.println(CheckerFlags.NOTES);
+            System.exit(1);
+        }
+        Set<Path> files = new LinkedHashSet<>();
+        for (; i < args.length; i++) {
+            files.addAll(expand(args[i]));
+        }
+        if (files.isEmpty()) {
+            System.err.println("No .simple files found.");
+            System.exit(1);
+        }
+        run(new ArrayList<>(files), flags, jobs, System.out);
+    }
+
+    // The files an argument names: itself, the *.simple files under a
+    // directory, or the files matching a glob, the last two sorted.
+    static List<Path> expand(String arg) throws IOException {
+        int glob = indexOfGlob(arg);
+        if (glob >= 0) {
+            int slash = arg.lastIndexOf('/', glob);
+            Path base = Paths.get(slash < 0 ? "." : arg.substring(0, slash + 1));
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + (slash < 0 ? "./" + arg : arg));
+            return walk(base, file -> matcher.matches(file));
+        }
+        Path path = Paths.get(arg);
+        if (Files.isDirectory(path)) {
+            return walk(path, file -> file.getFileName().toString().endsWith(".simple"));
+        }
+        return List.of(path);
+    }
+
+    private static int indexOfGlob(String arg) {
+        for (int i = 0; i < arg.length(); i++) {
+            if ("*?[{".indexOf(arg.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<Path> walk(Path base, PathMatcher filter) throws IOException {
+        if (!Files.isDirectory(base)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.walk(base)) {
+            return paths.filter(Files::isRegularFile).filter(filter::matches).sorted().collect(Collectors.toList());
+        }
+    }
+
+    // Checks files on a pool of jobs threads and prints their reports to out
+    // in list order, each as soon as it and all before it are done.
+    static void run(List<Path> files, CheckerFlags flags, int jobs, PrintStream out) throws Exception {
+        SignatureCache cache = flags.openCache();
+        int n = files.size();
+        long[] sizes = new long[n];
+        long bytes = 0;
+        for (int f = 0; f < n; f++) {
+            sizes[f] = Files.isRegularFile(files.get(f)) ? Files.size(files.get(f)) : 0;
+            bytes += sizes[f];
+        }
+        Integer[] largestFirst = new Integer[n];
+        for (int f = 0; f < n; f++) {
+            largestFirst[f] = f;
+        }
+        Arrays.sort(largestFirst, (a, b) -> Long.compare(sizes[b], sizes[a]));
+
+        String[] reports = new String[n];
+        List<Future<Boolean>> outcomes = new ArrayList<>(n);
+        for (int f = 0; f < n; f++) {
+            outcomes.add(null);
+        }
+        ForkJoinPool pool = new ForkJoinPool(jobs);
+        long start = System.nanoTime();
+        int passed = 0;
+        try {
+            // Submissions are taken oldest first, so in size order.
+            for (int f : largestFirst) {
+                String file = files.get(f).toString();
+                outcomes.set(f, pool.submit(() -> {
+                    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                    PrintStream report = new PrintStream(buffer);
+                    boolean ok = TestTypeChecker.runTest(file, flags, cache, report);
+                    report.flush();
+                    reports[f] = buffer.toString();
+                    return ok;
+                }));
+            }
+            for (int f = 0; f < n; f++) {
+                if (outcomes.get(f).get()) {
+                    passed++;
+                }
+                out.print(reports[f]);
+                out.flush();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        out.printf("Checked %d file(s) (%d bytes) with %d thread(s) in %.3f s: %d passed, %d failed; %.1f files/s, %.2f MB/s%n",
+                n, bytes, jobs, seconds, passed, n - passed, n / seconds, bytes / seconds / (1024 * 1024));
+    }
+}
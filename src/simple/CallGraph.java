@@ -0,0 +1,222 @@
+package simple;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Which functions refer to which. Any use of a function's name counts as an
+// edge (calls, but also passing or assigning the function), since any of
+// them ties the two signatures together during inference. Local names that
+// shadow a function still add an edge; that is conservative, not wrong.
+class CallGraph {
+    final int size;
+
+    // Weakly connected components: functions in different components share
+    // no type variables, so they can be checked independently. Numbered in
+    // order of their first function.
+    final int[] component;
+    final int componentCount;
+
+    public CallGraph(List<FuncDef> fns) {
+        this.size = fns.size();
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            index.putIfAbsent(fns.get(i).name, i);
+        }
+        int[][] callees = new int[size][];
+        for (int i = 0; i < size; i++) {
+            callees[i] = referencedFunctions(fns.get(i).body(), index);
+        }
+        this.component = new int[size];
+        this.componentCount = computeComponents(callees);
+    }
+
+    // Functions grouped by component, each group in declaration order.
+    List<List<Integer>> components() {
+        List<List<Integer>> groups = new ArrayList<>(componentCount);
+        for (int c = 0; c < componentCount; c++) {
+            groups.add(new ArrayList<>());
+        }
+        for (int f = 0; f < size; f++) {
+            groups.get(component[f]).add(f);
+        }
+        return groups;
+    }
+
+    // Functions main can reach: those named in main or by a global, then
+    // those named in the body of a function already reached. Only reached
+    // bodies are read, so a lazily parsed program parses nothing else.
+    // Names are matched as the call graph matches them, conservatively.
+    static boolean[] reachableFromMain(ProgramNode program) {
+        Map<String, List<Integer>> byName = new HashMap<>();
+        for (int i = 0; i < program.fns.size(); i++) {
+            byName.computeIfAbsent(program.fns.get(i).name, k -> new ArrayList<>()).add(i);
+        }
+        boolean[] reached = new boolean[program.fns.size()];
+        ArrayDeque<Integer> pending = new ArrayDeque<>();
+        NameCollector.Sink reach = name -> {
+            List<Integer> targets = byName.get(name);
+            if (targets != null) {
+                for (int f : targets) {
+                    if (!reached[f]) {
+                        reached[f] = true;
+                        pending.push(f);
+                    }
+                }
+            }
+        };
+        NameCollector collector = new NameCollector(reach);
+        for (VarDecl decl : program.globals) {
+            reach.name(decl.name);
+        }
+        for (Stmt stmt : program.main) {
+            stmt.accept(collector);
+        }
+        while (!pending.isEmpty()) {
+            program.fns.get(pending.pop()).body().accept(collector);
+        }
+        return reached;
+    }
+
+    static int[] referencedFunctions(Stmt body, Map<String, Integer> index) {
+        Set<Integer> found = new LinkedHashSet<>();
+        NameCollector collector = new NameCollector(name -> {
+            Integer target = index.get(name);
+            if (target != null) {
+                found.add(target);
+            }
+        });
+        body.accept(collector);
+        int[] result = new int[found.size()];
+        int i = 0;
+        for (int target : found) {
+            result[i++] = target;
+        }
+        return result;
+    }
+
+    // Joins the two ends of every edge, direction ignored.
+    private int computeComponents(int[][] callees) {
+        int[] parent = new int[size];
+        for (int f = 0; f < size; f++) {
+            parent[f] = f;
+        }
+        for (int f = 0; f < size; f++) {
+            for (int g : callees[f]) {
+                int a = root(parent, f), b = root(parent, g);
+                if (a != b) {
+                    parent[a] = b;
+                }
+            }
+        }
+        int[] number = new int[size];
+        Arrays.fill(number, -1);
+        int count = 0;
+        for (int f = 0; f < size; f++) {
+            int r = root(parent, f);
+            if (number[r] == -1) {
+                number[r] = count++;
+            }
+            component[f] = number[r];
+        }
+        return count;
+    }
+
+    private static int root(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
+
+// Reports every identifier used in a statement: variable reads, assignment
+// targets and call targets.
+class NameCollector implements StmtVisitor<Void, RuntimeException>, ExprVisitor<Void, RuntimeException> {
+    interface Sink {
+        void name(String name);
+    }
+
+    private final Sink sink;
+
+    public NameCollector(Sink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public Void visitVarDecl(VarDecl stmt) {
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(BlockStmt stmt) {
+        for (Stmt s : stmt.statements) {
+            s.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitAssign(AssignStmt stmt) {
+        sink.name(stmt.id);
+        return stmt.expr.accept(this);
+    }
+
+    @Override
+    public Void visitIf(IfStmt stmt) {
+        stmt.conditional.accept(this);
+        stmt.t.accept(this);
+        if (stmt.e != null) {
+            stmt.e.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitLoop(LoopStmt stmt) {
+        stmt.conditional.accept(this);
+        return stmt.body.accept(this);
+    }
+
+    @Override
+    public Void visitReturn(ReturnStmt stmt) {
+        return stmt.expr.accept(this);
+    }
+
+    @Override
+    public Void visitBinary(BinaryExpr expr) {
+        expr.left.accept(this);
+        return expr.right.accept(this);
+    }
+
+    @Override
+    public Void visitId(IdExpr expr) {
+        sink.name(expr.name);
+        return null;
+    }
+
+    @Override
+    public Void visitIntLiteral(IntLiteral expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitBoolLiteral(BoolLiteral expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitFuncCall(FuncCall expr) {
+        sink.name(expr.name);
+        for (Expr arg : expr.args) {
+            arg.accept(this);
+        }
+        return null;
+    }
+}
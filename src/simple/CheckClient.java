@@ -0,0 +1,107 @@
+package simple;
+
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Command-line end of CheckServer. Takes TestTypeChecker's arguments and
+// prints the same report, but the resident server does the check. With no
+// server listening it checks in-process instead, so a hook using it works
+// either way; so it does, with a note, if the socket was not made by this
+// user or the server gives no usable answer. Cache switches only apply to
+// such in-process checks, as the server has its own cache. --socket=<path>
+// picks the server; --stop shuts it down.
+public class CheckClient {
+
+    public static void main(String[] args) throws Exception {
+        Path socket = null;
+        boolean stop = false;
+        CheckerFlags flags = new CheckerFlags();
+        List<String> request = new ArrayList<>();
+        int i = 0;
+        for (; i < args.length; i++) {
+            if (args[i].startsWith("--socket=")) {
+                socket = Paths.get(args[i].substring("--socket=".length()));
+            } else if (args[i].equals("--stop")) {
+                stop = true;
+            } else if (i < args.length - 1 && flags.parse(args[i])) {
+                if (!CheckerFlags.isCacheFlag(args[i])) {
+                    request.add(args[i]);
+                }
+            } else {
+                break;
+            }
+        }
+        if (stop && i == args.length) {
+            stop(socket == null ? CheckServer.defaultSocket() : socket);
+            return;
+        }
+        if (stop || i != args.length - 1) {
+            System.err.println("Usage: java simple.CheckClient [--socket=<path>] " + CheckerFlags.USAGE + " <path_to_test_file>");
+            System.err.println("       java simple.CheckClient [--socket=<path>] --stop");
+            System.err.println(CheckerFlags.NOTES);
+            System.exit(1);
+        }
+        String filePath = args[i];
+        request.add(Paths.get(filePath).toAbsolutePath().toString());
+        CachedCheck outcome = ask(socket, request.toArray(new String[0]));
+        if (outcome == null) {
+            outcome = TestTypeChecker.check(filePath, flags, flags.openCache());
+        }
+        System.out.println("--- Running Test Case: " + filePath + " ---");
+        TestTypeChecker.report(outcome, System.out);
+    }
+
+    // The server's outcome for the request, or null to check in-process:
+    // no server listens, or none this user can trust or understand. socket
+    // null means the default one.
+    private static CachedCheck ask(Path socket, String[] request) {
+        try {
+            if (socket == null) {
+                socket = CheckServer.defaultSocket();
+            }
+            if (!Files.exists(socket, LinkOption.NOFOLLOW_LINKS)) {
+                return null;
+            }
+            if (!CheckServer.ownedByUser(socket)) {
+                System.err.println("Not using " + socket + ": it was not created by " + System.getProperty("user.name"));
+                return null;
+            }
+        } catch (IOException e) {
+            System.err.println("Not using the checker server: " + e.getMessage());
+            return null;
+        }
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (IOException e) {
+            return null;
+        }
+        try (channel) {
+            CheckServer.send(channel, request);
+            byte[] answer = Channels.newInputStream(channel).readAllBytes();
+            CachedCheck outcome = SignatureCache.decode(request[request.length - 1], answer);
+            if (outcome == null) {
+                throw new IOException("answer for another file or checker version");
+            }
+            return outcome;
+        } catch (IOException e) {
+            System.err.println("No usable answer from the checker server on " + socket + ": " + e);
+            return null;
+        }
+    }
+
+    private static void stop(Path socket) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            CheckServer.send(channel, null);
+            Channels.newInputStream(channel).readAllBytes();
+        }
+    }
+}
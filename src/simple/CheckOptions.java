@@ -0,0 +1,39 @@
+package simple;
+
+// Switches for a TypeChecker run. The defaults give the original eager,
+// single-pass checker.
+public class CheckOptions {
+    // Generate constraints for every unit first, then solve them in one pass.
+    boolean twoPhase;
+    // Threads for checking independent functions concurrently. Anything
+    // above 1 implies two-phase checking.
+    int parallelism = 1;
+    // Check only the functions main can reach; skip the rest unread.
+    boolean reachableOnly;
+    // Resolve names over persistent scopes instead of a ScopeTable. The
+    // outcome is the same; see ScopeBenchmark for the cost.
+    boolean persistentScopes;
+
+    public CheckOptions twoPhase(boolean on) {
+        this.twoPhase = on;
+        return this;
+    }
+
+    public CheckOptions reachableOnly(boolean on) {
+        this.reachableOnly = on;
+        return this;
+    }
+
+    public CheckOptions persistentScopes(boolean on) {
+        this.persistentScopes = on;
+        return this;
+    }
+
+    public CheckOptions parallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = threads;
+        return this;
+    }
+}
@@ -0,0 +1,197 @@
+package simple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// What a component-wise check learned, kept so that the next check of an
+// edited program can skip call-graph components that did not change.
+public class CheckResult {
+    private final Map<Long, List<ComponentSummary>> components = new HashMap<>();
+    private final int reused;
+    private final int checked;
+
+    CheckResult(List<ComponentSummary> summaries, int reused) {
+        for (ComponentSummary summary : summaries) {
+            components.computeIfAbsent(summary.key, k -> new ArrayList<>()).add(summary);
+        }
+        this.reused = reused;
+        this.checked = summaries.size() - reused;
+    }
+
+    // Number of components taken from the previous result.
+    public int reusedComponents() {
+        return reused;
+    }
+
+    // Number of components that were generated and solved again.
+    public int checkedComponents() {
+        return checked;
+    }
+
+    // A summary is only usable by a check in the same error mode: a fail-fast
+    // run stops solving a component at its first error.
+    ComponentSummary find(String[] names, long[] hashes, boolean collecting) {
+        List<ComponentSummary> candidates = components.get(ComponentSummary.key(hashes));
+        if (candidates != null) {
+            for (ComponentSummary summary : candidates) {
+                if (summary.collecting == collecting
+                        && Arrays.equals(summary.hashes, hashes) && Arrays.equals(summary.names, names)) {
+                    return summary;
+                }
+            }
+        }
+        return null;
+    }
+}
+
+// The outcome of checking one call-graph component before main was solved.
+// A component's variables are those of its members' signatures and units,
+// member by member, and a check gives each member consecutive ids for both
+// (see TypeChecker.checkByComponent), so their order is all that stays the
+// same from one check to the next. The summary keeps, by that order, each
+// variable's class root and each root's rank and bound type, and the errors
+// each function produced with variables named the same way. Nothing outside
+// a component can see its variables before main is solved, so restoring
+// these onto the ids a later check gives the component leaves it exactly as
+// solving the component again would, variable numbering included.
+class ComponentSummary {
+    private static final Pattern VAR = Pattern.compile("\\bt: (\\d+)");
+    private static final Pattern INDEX = Pattern.compile("\\bt: #(\\d+)");
+
+    final String[] names;
+    final long[] hashes;
+    final long key;
+    final boolean collecting;
+    private final int[] signatureVars; // by member
+    private final int[] unitVars;      // by member
+    private final int[] roots;         // by variable, as an index of a variable
+    private final int[] ranks;         // of each root
+    private final TypeExpr[] bindings; // of each root, over a private store whose ids are indices
+    private final List<List<Diagnostic>> diagnostics;
+    private final String[] failures;
+
+    // ids are the component's variables in store, in the order above.
+    ComponentSummary(String[] names, long[] hashes, int[] signatureVars, int[] unitVars, TypeStore store, int[] ids,
+                     List<List<Diagnostic>> diagnostics, String[] failures) {
+        this.names = names;
+        this.hashes = hashes;
+        this.key = key(hashes);
+        this.collecting = diagnostics != null;
+        this.signatureVars = signatureVars;
+        this.unitVars = unitVars;
+        Map<Integer, Integer> index = new HashMap<>();
+        for (int k = 0; k < ids.length; k++) {
+            index.put(ids[k], k);
+        }
+        TypeStore saved = new TypeStore();
+        TypeVar[] savedVars = new TypeVar[ids.length];
+        for (int k = 0; k < ids.length; k++) {
+            savedVars[k] = new TypeVar(saved, k);
+        }
+        TypeCopier copier = new TypeCopier(saved, v -> savedVars[indexOf(index, v.id)]);
+        roots = new int[ids.length];
+        ranks = new int[ids.length];
+        bindings = new TypeExpr[ids.length];
+        for (int k = 0; k < ids.length; k++) {
+            int root = store.find(ids[k]);
+            roots[k] = indexOf(index, root);
+            if (roots[k] == k) {
+                ranks[k] = store.rank(root);
+                TypeExpr bound = store.binding(root);
+                bindings[k] = bound == null ? null : copier.copy(bound);
+            }
+        }
+        if (diagnostics != null) {
+            List<List<Diagnostic>> named = new ArrayList<>();
+            for (List<Diagnostic> member : diagnostics) {
+                List<Diagnostic> renamed = new ArrayList<>();
+                for (Diagnostic d : member) {
+                    renamed.add(new Diagnostic(byIndex(d.message, index), d.function, d.position));
+                }
+                named.add(renamed);
+            }
+            diagnostics = named;
+        }
+        this.diagnostics = diagnostics;
+        this.failures = new String[failures.length];
+        for (int m = 0; m < failures.length; m++) {
+            this.failures[m] = failures[m] == null ? null : byIndex(failures[m], index);
+        }
+    }
+
+    static long key(long[] hashes) {
+        return Arrays.hashCode(hashes) * 0x9e3779b97f4a7c15L + hashes.length;
+    }
+
+    int signatureVars(int member) {
+        return signatureVars[member];
+    }
+
+    int unitVars(int member) {
+        return unitVars[member];
+    }
+
+    // Puts the component's solved state onto its variables in store, which
+    // are ids, allocated as for a fresh check but not yet unified.
+    void instantiate(TypeStore store, int[] ids) {
+        for (int k = 0; k < ids.length; k++) {
+            store.restore(ids[k], ids[roots[k]], ranks[k]);
+        }
+        TypeCopier copier = new TypeCopier(store, v -> store.var(ids[v.id]));
+        for (int k = 0; k < ids.length; k++) {
+            if (bindings[k] != null) {
+                store.bind(ids[k], copier.copy(bindings[k]));
+            }
+        }
+    }
+
+    // Errors of the member when collecting all errors, with positions
+    // moved to a member that now starts at line base and variables named
+    // by their ids.
+    List<Diagnostic> diagnostics(int member, int base, int[] ids) {
+        List<Diagnostic> shifted = new ArrayList<>();
+        for (Diagnostic d : diagnostics.get(member)) {
+            shifted.add(new Diagnostic(byId(d.message, ids), d.function, d.position).shifted(base));
+        }
+        return shifted;
+    }
+
+    // First error of the member in fail-fast mode, or null.
+    String failure(int member, int[] ids) {
+        return failures[member] == null ? null : byId(failures[member], ids);
+    }
+
+    private static int indexOf(Map<Integer, Integer> index, int id) {
+        Integer k = index.get(id);
+        if (k == null) {
+            throw new IllegalStateException("t: " + id + " is not a variable of the component");
+        }
+        return k;
+    }
+
+    // A message with "t: id" for each of the component's variables turned
+    // into "t: #index", and back.
+    private static String byIndex(String message, Map<Integer, Integer> index) {
+        Matcher m = VAR.matcher(message);
+        StringBuilder out = new StringBuilder();
+        while (m.find()) {
+            Integer k = index.get(Integer.parseInt(m.group(1)));
+            m.appendReplacement(out, k == null ? m.group() : "t: #" + k);
+        }
+        return m.appendTail(out).toString();
+    }
+
+    private static String byId(String message, int[] ids) {
+        Matcher m = INDEX.matcher(message);
+        StringBuilder out = new StringBuilder();
+        while (m.find()) {
+            m.appendReplacement(out, "t: " + ids[Integer.parseInt(m.group(1))]);
+        }
+        return m.appendTail(out).toString();
+    }
+}
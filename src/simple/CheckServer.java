@@ -0,0 +1,248 @@
+package simple;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the checker resident: a long-running process that answers check
+// requests over a Unix domain socket, so editors and hooks that check one
+// file at a time skip JVM startup and run on code the JIT has already
+// compiled. CheckClient is the command-line end.
+//
+// One request per connection: REQUEST, then STOP, or CHECK with the count
+// and text of TestTypeChecker's arguments (switches, then an absolute file
+// path). The answer to a CHECK is its CachedCheck in SignatureCache's entry
+// format, keyed by the path, which the client prints as TestTypeChecker
+// would. Requests are checked concurrently on --jobs threads. What the
+// parsers print to stderr goes to the server's stderr.
+//
+// The socket lives in a directory only its user can enter, whether it is
+// the default one or named with --socket, so no one else can stand in for
+// the server or send it requests. A connection has READ_TIMEOUT_SECONDS to
+// send its request, so idle ones cannot hold the threads. After STOP the
+// server finishes the requests it has taken before it exits. The cache is the server's, chosen when it
+// starts; requests cannot name a cache directory of their own.
+public class CheckServer {
+    static final int REQUEST = 0x53494752; // "SIGR"
+    static final byte CHECK = 0, STOP = 1;
+
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+    private static final int MAX_ARGS = 64;
+    private static final long READ_TIMEOUT_SECONDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        Path socket = null;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        CheckerFlags cacheFlags = new CheckerFlags();
+        boolean bad = false;
+        for (String arg : args) {
+            if (arg.startsWith("--socket=")) {
+                socket = Paths.get(arg.substring("--socket=".length()));
+            } else if (arg.startsWith("--jobs=")) {
+                jobs = (int) CheckerFlags.number(arg, "--jobs=", Integer.MAX_VALUE);
+            } else if (!CheckerFlags.isCacheFlag(arg) || !cacheFlags.parse(arg)) {
+                bad = true;
+            }
+        }
+        if (bad || jobs < 1) {
+            System.err.println("Usage: java simple.CheckServer [--socket=<path>] [--jobs=<threads>] [--cache=<dir> [--cache-max-mb=<n>]]");
+            System.exit(1);
+        }
+        try {
+            if (socket == null) {
+                socket = defaultSocket();
+            } else {
+                requirePrivate(socket.toAbsolutePath().getParent());
+            }
+            serve(socket, jobs, cacheFlags.openCache());
+        } catch (IOException e) {
+            System.err.println("Checker server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // Where server and client meet unless told otherwise: a socket in the
+    // user's private runtime directory, $XDG_RUNTIME_DIR, or failing that
+    // in a directory of the user's own under the temporary directory.
+    static Path defaultSocket() throws IOException {
+        String runtime = System.getenv("XDG_RUNTIME_DIR");
+        Path dir = runtime != null && !runtime.isEmpty()
+                ? Paths.get(runtime, "simple-checker")
+                : Paths.get(System.getProperty("java.io.tmpdir"), "simple-checker-" + System.getProperty("user.name"));
+        try {
+            Files.createDirectory(dir, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+        } catch (FileAlreadyExistsException existing) {
+            // checked below like a new one
+        }
+        requirePrivate(dir);
+        return dir.resolve("checker.sock");
+    }
+
+    // Throws unless dir is a directory of this user's that no one else can
+    // enter or write to.
+    private static void requirePrivate(Path dir) throws IOException {
+        PosixFileAttributes attributes = Files.readAttributes(dir, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (!attributes.isDirectory() || !attributes.owner().equals(currentUser())
+                || !OWNER_ONLY.containsAll(attributes.permissions())) {
+            throw new IOException(dir + " is not a directory private to " + System.getProperty("user.name"));
+        }
+    }
+
+    // Whether socket was made by this user, and so by a server of theirs.
+    static boolean ownedByUser(Path socket) throws IOException {
+        return Files.getOwner(socket, LinkOption.NOFOLLOW_LINKS).equals(currentUser());
+    }
+
+    private static UserPrincipal currentUser() throws IOException {
+        return FileSystems.getDefault().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+    }
+
+    // Answers requests until one asks to stop. A socket file left by a
+    // server that died is replaced; a live server's is not.
+    static void serve(Path socket, int jobs, SignatureCache cache) throws IOException {
+        if (Files.exists(socket)) {
+            if (listening(socket)) {
+                throw new IOException("A checker server is already listening on " + socket);
+            }
+            Files.delete(socket);
+        }
+        ForkJoinPool pool = new ForkJoinPool(jobs);
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "request timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.deleteIfExists(socket);
+            } catch (IOException ignored) {
+                // nothing more to do on the way out
+            }
+        }));
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            System.err.println("Checker server listening on " + socket);
+            while (true) {
+                SocketChannel client = server.accept();
+                pool.execute(() -> answer(client, server, cache, timer));
+            }
+        } catch (ClosedChannelException stopped) {
+            // closed by a STOP request
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            timer.shutdownNow();
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    static boolean listening(Path socket) {
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socket)).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // The request must arrive within READ_TIMEOUT_SECONDS; otherwise timer
+    // closes the connection, which ends the read.
+    private static void answer(SocketChannel client, ServerSocketChannel server, SignatureCache cache,
+                               ScheduledExecutorService timer) {
+        ScheduledFuture<?> timeout = timer.schedule(() -> {
+            try {
+                client.close();
+            } catch (IOException ignored) {
+                // the read fails either way
+            }
+        }, READ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        try (client) {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(client));
+            OutputStream out = Channels.newOutputStream(client);
+            if (in.readInt() != REQUEST) {
+                return;
+            }
+            if (in.readByte() == STOP) {
+                server.close();
+                return;
+            }
+            int count = in.readInt();
+            if (count < 1 || count > MAX_ARGS) {
+                System.err.println("Request failed: " + count + " arguments");
+                return;
+            }
+            String[] args = new String[count];
+            for (int i = 0; i < count; i++) {
+                args[i] = SignatureCache.readString(in);
+            }
+            timeout.cancel(false);
+            String file = args[count - 1];
+            CheckerFlags flags = new CheckerFlags();
+            CachedCheck outcome = null;
+            for (int i = 0; i < count - 1 && outcome == null; i++) {
+                if (CheckerFlags.isCacheFlag(args[i])) {
+                    outcome = CachedCheck.threw("The server does not take " + args[i]);
+                } else if (!flags.parse(args[i])) {
+                    outcome = CachedCheck.threw("Bad option: " + args[i]);
+                }
+            }
+            if (outcome == null) {
+                outcome = TestTypeChecker.check(file, flags, cache);
+            }
+            out.write(SignatureCache.encode(file, outcome));
+            out.flush();
+        } catch (EOFException e) {
+            // a connection without a request, such as another server's probe
+        } catch (AsynchronousCloseException e) {
+            System.err.println("Request failed: none within " + READ_TIMEOUT_SECONDS + " s");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Request failed: " + e);
+        }
+    }
+
+    // Sends a request: the arguments of a CHECK, or null for STOP.
+    static void send(SocketChannel channel, String[] args) throws IOException {
+        DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+        out.writeInt(REQUEST);
+        if (args == null) {
+            out.writeByte(STOP);
+        } else {
+            out.writeByte(CHECK);
+            out.writeInt(args.length);
+            for (String arg : args) {
+                SignatureCache.writeString(out, arg);
+            }
+        }
+        out.flush();
+    }
+}
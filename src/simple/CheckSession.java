@@ -0,0 +1,24 @@
+package simple;
+
+// All mutable state of one check: type-variable allocation, unification, the
+// symbol table and where in the program the checker currently is. Every
+// typeCheckProgram call starts a fresh session, so variable ids (and the
+// printed types that use them) depend only on the program being checked, and
+// checks on different TypeChecker instances share nothing.
+class CheckSession {
+    final TypeStore store = new TypeStore();
+    final Unifier unifier = new Unifier(store);
+    final TypeEnvironment typeEnv;
+    Resolution resolution;
+    TypeExpr[] types; // indexed by Resolver slot
+    TypeExpr currentFunctionReturnType;
+    String currentFunction;
+
+    CheckSession(SymbolTable symbols) {
+        this.typeEnv = new TypeEnvironment(symbols);
+    }
+
+    TypeVar freshVar() {
+        return new TypeVar(store);
+    }
+}
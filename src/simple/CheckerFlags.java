@@ -0,0 +1,93 @@
+package simple;
+
+import java.nio.file.Paths;
+
+// The switches of a TestTypeChecker run, everything but the file to check,
+// so that BatchChecker can take the same ones.
+class CheckerFlags {
+    static final String USAGE = "[--all-errors] [--prelex] [--lazy] [--parser=cup|descent] [--reachable] [--two-phase] [--parallel=<threads>] [--cache=<dir> [--cache-max-mb=<n>]]";
+    // Printed under USAGE: what the switches leave unchecked.
+    static final String NOTES = "With --lazy --reachable, functions main cannot reach are never parsed, so syntax errors in their bodies are not reported.";
+
+    boolean allErrors;
+    boolean prelex;
+    private boolean lazy;
+    private String parser;
+    final CheckOptions options = new CheckOptions();
+    private String cacheDir;
+    private long cacheMaxMb = 64;
+
+    // Takes arg if it is one of the switches above, with a valid number
+    // where the switch takes one.
+    boolean parse(String arg) {
+        if (arg.equals("--all-errors")) {
+            allErrors = true;
+        } else if (arg.equals("--prelex")) {
+            prelex = true;
+        } else if (arg.equals("--lazy")) {
+            lazy = true;
+        } else if (arg.equals("--parser=cup") || arg.equals("--parser=descent")) {
+            parser = arg.substring("--parser=".length());
+        } else if (arg.equals("--reachable")) {
+            options.reachableOnly(true);
+        } else if (arg.equals("--two-phase")) {
+            options.twoPhase(true);
+        } else if (arg.startsWith("--parallel=")) {
+            int threads = (int) number(arg, "--parallel=", Integer.MAX_VALUE);
+            if (threads < 1) {
+                return false;
+            }
+            options.parallelism(threads);
+        } else if (arg.startsWith("--cache=")) {
+            cacheDir = arg.substring("--cache=".length());
+        } else if (arg.startsWith("--cache-max-mb=")) {
+            cacheMaxMb = number(arg, "--cache-max-mb=", Long.MAX_VALUE >> 20);
+            if (cacheMaxMb < 0) {
+                return false;
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    // The number after prefix in arg, or -1 if it is not one from 0 to max.
+    static long number(String arg, String prefix, long max) {
+        try {
+            long value = Long.parseLong(arg.substring(prefix.length()));
+            return value <= max ? value : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // The switches that name a cache directory or size it. A CheckServer
+    // takes them when it starts, never from a request.
+    static boolean isCacheFlag(String arg) {
+        return arg.startsWith("--cache=") || arg.startsWith("--cache-max-mb=");
+    }
+
+    // Only the descent parser recovers from syntax errors, so it is the
+    // default when all errors are wanted. Only it parses lazily, too.
+    boolean descent() {
+        return parser == null ? allErrors || lazy : parser.equals("descent");
+    }
+
+    boolean lazy() {
+        return lazy && descent();
+    }
+
+    // The cache asked for with --cache, or null. One that cannot be opened
+    // is left out with a note.
+    SignatureCache openCache() {
+        if (cacheDir == null) {
+            return null;
+        }
+        try {
+            return new SignatureCache(Paths.get(cacheDir), cacheMaxMb * 1024 * 1024);
+        } catch (Exception e) {
+            System.err.println("Cache disabled: " + e.getMessage());
+            return null;
+        }
+    }
+}
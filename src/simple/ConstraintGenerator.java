@@ -0,0 +1,244 @@
+package simple;
+
+import java.util.List;
+
+// First phase of two-phase checking: walks one unit of the AST and emits its
+// constraints without unifying anything. Names are already resolved to
+// slots: function slots hold signatures in types, which enter the set as
+// EXTERN terms; every other slot maps to a term of its unit in terms.
+//
+// types is only read, each slot of terms is written by the one unit that
+// declares it, and nothing is unified until every unit has been generated,
+// so generation of different units is independent.
+class ConstraintGenerator {
+    private static final int INT_TERM = ConstraintSet.constant(Type.INTEGER);
+    private static final int BOOL_TERM = ConstraintSet.constant(Type.BOOLEAN);
+
+    private final TypeExpr[] types;
+    private final int functionSlots;
+    private final int[] terms;
+    private ConstraintSet out;
+    private boolean inFunction;
+    private int returnTerm;
+    private int result; // term of the last expression visited
+
+    public ConstraintGenerator(TypeExpr[] types, int functionSlots, int[] terms) {
+        this.types = types;
+        this.functionSlots = functionSlots;
+        this.terms = terms;
+    }
+
+    ConstraintSet function(FuncDef funcDef, FuncType signature) {
+        out = new ConstraintSet(funcDef.name);
+        inFunction = true;
+        returnTerm = out.extern(signature.returnType);
+        try {
+            for (int i = 0; i < funcDef.params.size(); i++) {
+                declare(funcDef.params.get(i), out.extern(signature.paramTypes.get(i)));
+            }
+            funcDef.body().accept(stmts);
+        } finally {
+            inFunction = false;
+        }
+        return out;
+    }
+
+    ConstraintSet main(List<VarDecl> globalDecls, List<Stmt> main) {
+        out = new ConstraintSet(null);
+        for (VarDecl decl : globalDecls) {
+            int term = declaredTerm(decl);
+            if (declare(decl, term)) {
+                out.globalDecls.add(decl);
+                out.globalTerms.add(term);
+            }
+        }
+        for (Stmt stmt : main) {
+            stmt.accept(stmts);
+        }
+        return out;
+    }
+
+    // Unresolved names (slot -1) were reported by the Resolver.
+    private int lookup(int slot) {
+        if (slot < 0) {
+            return out.extern(ErrorType.INSTANCE);
+        }
+        if (slot < functionSlots) {
+            return out.extern(types[slot]);
+        }
+        return terms[slot];
+    }
+
+    private boolean declare(VarDecl decl, int term) {
+        if (decl.slot < 0) {
+            return false;
+        }
+        terms[decl.slot] = term;
+        return true;
+    }
+
+    private int declaredTerm(VarDecl decl) {
+        return decl.type == null ? out.freshVar() : ConstraintSet.constant(decl.type);
+    }
+
+    private int expr(Expr expr) {
+        expr.accept(exprs);
+        return result;
+    }
+
+    private final StmtVisitor<Void, RuntimeException> stmts = new StmtVisitor<>() {
+        @Override
+        public Void visitVarDecl(VarDecl decl) {
+            declare(decl, declaredTerm(decl));
+            return null;
+        }
+
+        @Override
+        public Void visitAssign(AssignStmt assign) {
+            int varTerm = lookup(assign.slot);
+            int exprTerm = expr(assign.expr);
+            out.equal(varTerm, exprTerm, assign);
+            return null;
+        }
+
+        @Override
+        public Void visitBlock(BlockStmt block) {
+            for (VarDecl decl : block.declarations) {
+                decl.accept(this);
+            }
+            for (Stmt s : block.statements) {
+                s.accept(this);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitIf(IfStmt ifStmt) {
+            out.equal(expr(ifStmt.conditional), BOOL_TERM, ifStmt.conditional);
+            ifStmt.t.accept(this);
+            if (ifStmt.e != null) {
+                ifStmt.e.accept(this);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitLoop(LoopStmt loop) {
+            out.equal(expr(loop.conditional), BOOL_TERM, loop.conditional);
+            loop.body.accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitReturn(ReturnStmt ret) {
+            if (!inFunction) {
+                out.error("Return statement found outside of a function body.", ret);
+                expr(ret.expr);
+                return null;
+            }
+            out.equal(expr(ret.expr), returnTerm, ret);
+            return null;
+        }
+    };
+
+    private final ExprVisitor<Void, RuntimeException> exprs = new ExprVisitor<>() {
+        @Override
+        public Void visitIntLiteral(IntLiteral expr) {
+            result = INT_TERM;
+            return null;
+        }
+
+        @Override
+        public Void visitBoolLiteral(BoolLiteral expr) {
+            result = BOOL_TERM;
+            return null;
+        }
+
+        @Override
+        public Void visitId(IdExpr expr) {
+            result = lookup(expr.slot);
+            return null;
+        }
+
+        @Override
+        public Void visitBinary(BinaryExpr expr) {
+            int left = expr(expr.left);
+            int right = expr(expr.right);
+            switch (expr.op) {
+                case ADD:
+                case SUB:
+                case MUL:
+                case DIV:
+                    out.equal(left, INT_TERM, expr);
+                    out.equal(right, INT_TERM, expr);
+                    result = INT_TERM;
+                    break;
+                case LT:
+                case GT:
+                    out.equal(left, INT_TERM, expr);
+                    out.equal(right, INT_TERM, expr);
+                    result = BOOL_TERM;
+                    break;
+                case AND:
+                case OR:
+                    out.equal(left, BOOL_TERM, expr);
+                    out.equal(right, BOOL_TERM, expr);
+                    result = BOOL_TERM;
+                    break;
+                case EQ:
+                    out.equal(left, right, expr);
+                    result = BOOL_TERM;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown binary operator.");
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitFuncCall(FuncCall call) {
+            int callee = lookup(call.slot);
+            TypeExpr known = ConstraintSet.tag(callee) == ConstraintSet.EXTERN
+                    ? out.externs.get(ConstraintSet.index(callee)).find()
+                    : null;
+
+            if (known instanceof FuncType) {
+                FuncType funcType = (FuncType) known;
+                if (call.args.size() != funcType.paramTypes.size()) {
+                    out.error("Function arity mismatch: " + call.name, call);
+                    checkArgs(call);
+                    result = out.extern(ErrorType.INSTANCE);
+                    return null;
+                }
+                for (int i = 0; i < call.args.size(); i++) {
+                    int argTerm = expr(call.args.get(i));
+                    out.equal(argTerm, out.extern(funcType.paramTypes.get(i)), call.args.get(i));
+                }
+                result = out.extern(funcType.returnType);
+            } else if (ConstraintSet.tag(callee) == ConstraintSet.VAR || known instanceof TypeVar) {
+                // A variable or parameter: what it holds by the time the call
+                // is solved decides how the call is checked.
+                int node = out.call(callee, call.args.size(), call);
+                for (int i = 0; i < call.args.size(); i++) {
+                    out.argument(node, i, expr(call.args.get(i)), call.args.get(i));
+                }
+                int returnType = out.freshVar();
+                out.result(callee, node, returnType, call);
+                result = returnType;
+            } else {
+                if (known != ErrorType.INSTANCE) {
+                    out.error("'" + call.name + "' is not a function.", call);
+                }
+                checkArgs(call);
+                result = out.extern(ErrorType.INSTANCE);
+            }
+            return null;
+        }
+
+        private void checkArgs(FuncCall call) {
+            for (Expr arg : call.args) {
+                expr(arg);
+            }
+        }
+    };
+}
@@ -0,0 +1,142 @@
+package simple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Constraints for one unit of the program (a function body, or the globals
+// plus main), in the order the eager checker would meet them.
+//
+// Types are int terms: the low two bits are a tag and the rest an index.
+//   VAR    - a fresh type variable local to this set
+//   EXTERN - a TypeExpr that already exists (function signatures, params)
+//   FUNC   - a call's function type node in funcs: [result, n, arg1 .. argn]
+//   CONST  - a type constant, indexed by Type ordinal
+// Each constraint is EQ (lhs = rhs), ERROR (lhs indexes messages), for errors
+// found while walking the AST, or one of the three steps of a call whose
+// callee's type is not known until the call is solved:
+//   CALL   - lhs callee, rhs the call's FUNC node: decides, as the eager
+//            checker does before it checks the arguments, whether the callee
+//            is a function, an unknown, or neither
+//   ARG    - lhs the FUNC node, rhs an argument's position
+//   RESULT - lhs callee, rhs the FUNC node: types the call's result
+// All are kept in sequence so errors surface in the same order as in the
+// eager checker.
+class ConstraintSet {
+    static final int VAR = 0, EXTERN = 1, FUNC = 2, CONST = 3;
+    static final int EQ = 0, ERROR = 1, CALL = 2, ARG = 3, RESULT = 4;
+
+    final String function; // null for the globals/main unit
+
+    int[] kind = new int[16];
+    int[] lhs = new int[16];
+    int[] rhs = new int[16];
+    AstNode[] origin = new AstNode[16];
+    int size;
+
+    int varCount;
+    final List<TypeExpr> externs = new ArrayList<>();
+    private final Map<TypeExpr, Integer> externIndex = new IdentityHashMap<>();
+    int[] funcs = new int[16];
+    int funcsSize;
+    final List<String> messages = new ArrayList<>();
+
+    // Globals declared by this unit, and their terms.
+    final List<VarDecl> globalDecls = new ArrayList<>();
+    final List<Integer> globalTerms = new ArrayList<>();
+
+    // Filled in by ConstraintSolver.prepare. A call's result variable is
+    // replaced by the type of the call once the callee is known.
+    TypeExpr[] vars;
+    // Callee of each call by FUNC node, as decided by its CALL constraint.
+    TypeExpr[] callees;
+
+    public ConstraintSet(String function) {
+        this.function = function;
+    }
+
+    static int term(int tag, int index) {
+        return index << 2 | tag;
+    }
+
+    static int tag(int term) {
+        return term & 3;
+    }
+
+    static int index(int term) {
+        return term >>> 2;
+    }
+
+    static int constant(Type type) {
+        return term(CONST, type.ordinal());
+    }
+
+    int freshVar() {
+        return term(VAR, varCount++);
+    }
+
+    int extern(TypeExpr type) {
+        Integer index = externIndex.get(type);
+        if (index == null) {
+            index = externs.size();
+            externs.add(type);
+            externIndex.put(type, index);
+        }
+        return term(EXTERN, index);
+    }
+
+    // Starts a call of callee with count arguments: reserves its FUNC node,
+    // whose result and arguments are filled in by argument and result.
+    int call(int callee, int count, FuncCall node) {
+        int start = funcsSize;
+        ensureFuncs(count + 2);
+        funcs[funcsSize++] = 0;
+        funcs[funcsSize++] = count;
+        funcsSize += count;
+        int call = term(FUNC, start);
+        add(CALL, callee, call, node);
+        return call;
+    }
+
+    void argument(int call, int position, int argTerm, AstNode node) {
+        funcs[index(call) + 2 + position] = argTerm;
+        add(ARG, call, position, node);
+    }
+
+    void result(int callee, int call, int resultTerm, FuncCall node) {
+        funcs[index(call)] = resultTerm;
+        add(RESULT, callee, call, node);
+    }
+
+    void equal(int a, int b, AstNode node) {
+        add(EQ, a, b, node);
+    }
+
+    void error(String message, AstNode node) {
+        add(ERROR, messages.size(), 0, node);
+        messages.add(message);
+    }
+
+    private void add(int k, int a, int b, AstNode node) {
+        if (size == kind.length) {
+            int capacity = size * 2;
+            kind = Arrays.copyOf(kind, capacity);
+            lhs = Arrays.copyOf(lhs, capacity);
+            rhs = Arrays.copyOf(rhs, capacity);
+            origin = Arrays.copyOf(origin, capacity);
+        }
+        kind[size] = k;
+        lhs[size] = a;
+        rhs[size] = b;
+        origin[size] = node;
+        size++;
+    }
+
+    private void ensureFuncs(int extra) {
+        if (funcsSize + extra > funcs.length) {
+            funcs = Arrays.copyOf(funcs, Math.max(funcs.length * 2, funcsSize + extra));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package simple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Second phase of two-phase checking: turns the terms of a ConstraintSet into
+// TypeExprs and runs its constraints through the unifier in one loop.
+//
+// prepare allocates the set's type variables; call it for every set, in
+// program order, before solving any of them so that variable ids come out
+// the same as in the eager checker.
+class ConstraintSolver {
+    private static final Type[] TYPES = Type.values();
+
+    private final TypeStore store;
+    private final Unifier unifier;
+    private final Diagnostics diagnostics; // null: throw on the first error
+    private final TypeInterner interner;   // null: the store's
+
+    public ConstraintSolver(TypeStore store, Unifier unifier, Diagnostics diagnostics) {
+        this(store, unifier, diagnostics, null);
+    }
+
+    // Solvers running at the same time on one store each need an interner.
+    ConstraintSolver(TypeStore store, Unifier unifier, Diagnostics diagnostics, TypeInterner interner) {
+        this.store = store;
+        this.unifier = unifier;
+        this.diagnostics = diagnostics;
+        this.interner = interner;
+    }
+
+    void prepare(ConstraintSet set) {
+        set.vars = new TypeExpr[set.varCount];
+        for (int i = 0; i < set.varCount; i++) {
+            set.vars[i] = new TypeVar(store);
+        }
+        set.callees = new TypeExpr[set.funcsSize];
+    }
+
+    TypeExpr materialize(ConstraintSet set, int term) {
+        int index = ConstraintSet.index(term);
+        switch (ConstraintSet.tag(term)) {
+            case ConstraintSet.VAR:
+                return set.vars[index];
+            case ConstraintSet.EXTERN:
+                return set.externs.get(index);
+            case ConstraintSet.FUNC: {
+                int count = set.funcs[index + 1];
+                List<TypeExpr> params = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    params.add(materialize(set, set.funcs[index + 2 + i]));
+                }
+                TypeExpr returnType = materialize(set, set.funcs[index]);
+                return interner == null
+                        ? store.funcType(returnType, params)
+                        : store.funcType(returnType, params, interner);
+            }
+            default:
+                return TypeConst.of(TYPES[index]);
+        }
+    }
+
+    void solve(ConstraintSet set) throws Exception {
+        for (int i = 0; i < set.size; i++) {
+            String error;
+            switch (set.kind[i]) {
+                case ConstraintSet.EQ:
+                    error = unifier.tryUnify(materialize(set, set.lhs[i]), materialize(set, set.rhs[i]));
+                    break;
+                case ConstraintSet.CALL:
+                    error = call(set, set.lhs[i], ConstraintSet.index(set.rhs[i]), ((FuncCall) set.origin[i]).name);
+                    break;
+                case ConstraintSet.ARG:
+                    error = argument(set, ConstraintSet.index(set.lhs[i]), set.rhs[i]);
+                    break;
+                case ConstraintSet.RESULT:
+                    error = result(set, set.lhs[i], set.rhs[i]);
+                    break;
+                default:
+                    error = set.messages.get(set.lhs[i]);
+            }
+            if (error != null) {
+                if (diagnostics == null) {
+                    throw new Exception(error);
+                }
+                AstNode origin = set.origin[i];
+                diagnostics.report(new Diagnostic(error, set.function, origin == null ? Position.NONE : origin.position()));
+            }
+        }
+    }
+
+    // The steps of a call through a variable, checked as the eager checker
+    // checks a call: by what the callee is when the call is reached.
+    private String call(ConstraintSet set, int callee, int node, String name) {
+        TypeExpr type = materialize(set, callee).find();
+        set.callees[node] = type;
+        if (type instanceof FuncType) {
+            if (((FuncType) type).paramTypes.size() != set.funcs[node + 1]) {
+                return "Function arity mismatch: " + name;
+            }
+        } else if (!(type instanceof TypeVar) && type != ErrorType.INSTANCE) {
+            return "'" + name + "' is not a function.";
+        }
+        return null;
+    }
+
+    private String argument(ConstraintSet set, int node, int position) {
+        if (!takesArguments(set, node)) {
+            return null;
+        }
+        TypeExpr param = ((FuncType) set.callees[node]).paramTypes.get(position);
+        return unifier.tryUnify(materialize(set, set.funcs[node + 2 + position]), param);
+    }
+
+    // A call of an unknown makes it a function of the arguments, returning
+    // the call's result variable. Otherwise the call has the callee's return
+    // type, or the error type if the call was wrong, and the variable, which
+    // nothing has used yet, is left out as in the eager checker.
+    private String result(ConstraintSet set, int callee, int call) {
+        int node = ConstraintSet.index(call);
+        TypeExpr type = set.callees[node];
+        if (type instanceof TypeVar) {
+            return unifier.tryUnify(materialize(set, callee), materialize(set, call));
+        }
+        int result = ConstraintSet.index(set.funcs[node]);
+        set.vars[result] = takesArguments(set, node) ? ((FuncType) type).returnType : ErrorType.INSTANCE;
+        return null;
+    }
+
+    private static boolean takesArguments(ConstraintSet set, int node) {
+        TypeExpr type = set.callees[node];
+        return type instanceof FuncType && ((FuncType) type).paramTypes.size() == set.funcs[node + 1];
+    }
+}
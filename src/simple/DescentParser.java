@@ -0,0 +1,529 @@
+package simple;
+
+import java.util.function.Supplier;
+
+// Hand-written front end for the grammar in SimpleParser.cup: recursive
+// descent for declarations and statements, precedence climbing for binary
+// operators. It reads a TokenStream's arrays directly, so no Symbol is
+// built per token, and produces the same ProgramNode as the CUP parser.
+//
+// It also fails the same way. The first token that cannot continue a valid
+// program is reported to stderr as CUP reports it, and parse throws CUP's
+// "Can't recover" exception. A lexer error is thrown when parsing reaches
+// it. Quirks of the grammar are kept: a parameter or argument list may
+// start with a comma, and a dangling else binds to the nearest if.
+//
+// Given a Diagnostics sink it recovers instead (panic mode). Each syntax
+// error is reported to the sink and the parser skips to the next statement,
+// declaration or function boundary. The result is a partial program:
+// statements and declarations that failed to parse are left out, and so is
+// any function containing a syntax error or placed after the main program,
+// so the checker sees only well-formed functions. Lexer errors still end
+// the parse.
+//
+// With lazy(true), parse() does not build braced function bodies. It skims
+// each one by matching braces in the token kinds and leaves a FuncDef that
+// parses the tokens in between on its first body() call, so a program pays
+// only for the bodies the checker reads. A syntax error inside a skimmed
+// body is reported then, as an unchecked exception with the usual message,
+// so it can surface after errors found later in the file. Only the strict
+// object parse of a file that lexed cleanly defers: recovering needs every
+// syntax error up front, and a lexer error must stay behind any syntax error
+// before it. A body that does not close before the next func is parsed at
+// once.
+public class DescentParser {
+    private final TokenStream tokens;
+    private final int[] kind;
+    private final Diagnostics errors; // null: stop at the first syntax error
+    private boolean lazy;
+    private ObjectAstBuilder out;
+    private boolean deferring; // whether bodies are being skimmed
+    private int at;
+    private int failures;       // syntax errors so far, reported or not
+    private int lastError = -1; // token of the last reported error
+    private String function;    // function being parsed, for diagnostics
+
+    public DescentParser(TokenStream tokens) {
+        this(tokens, null);
+    }
+
+    public DescentParser(TokenStream tokens, Diagnostics errors) {
+        this.tokens = tokens;
+        this.kind = tokens.kind;
+        this.errors = errors;
+    }
+
+    // Thrown to unwind to the nearest recovery point; the error itself has
+    // already been reported.
+    private static final class SyntaxError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        SyntaxError() {
+            super(null, null, false, false);
+        }
+    }
+
+    // Whether parse() defers function bodies; ignored when recovering.
+    public DescentParser lazy(boolean on) {
+        this.lazy = on;
+        return this;
+    }
+
+    public ProgramNode parse() throws Exception {
+        out = new ObjectAstBuilder(tokens.symbols);
+        // A lexer error must still come after any syntax error before it.
+        deferring = lazy && errors == null && tokens.failure == null;
+        while (peek() == sym.FUNC) {
+            function();
+        }
+        int functions = out.depth();
+        declarations();
+        int globals = out.depth() - functions;
+        statements(sym.EOF);
+        // Recovering, only a function after the main program gets here.
+        // Report it and skip it.
+        while (errors != null && peek() == sym.FUNC) {
+            syntaxError();
+            int depth = out.depth();
+            function();
+            out.truncate(depth);
+            statements(sym.EOF);
+        }
+        expect(sym.EOF);
+        out.program(functions, globals, out.depth() - functions - globals);
+        return (ProgramNode) out.result();
+    }
+
+    // Emits the next function unless it has a syntax error.
+    private void function() throws Exception {
+        int failed = failures;
+        int depth = out.depth();
+        try {
+            funcDefinition();
+        } catch (SyntaxError e) {
+            skipFunction();
+        }
+        function = null;
+        if (failures != failed) {
+            out.truncate(depth);
+        }
+    }
+
+    private void funcDefinition() throws Exception {
+        expect(sym.FUNC);
+        long position = position(at);
+        int name = identifier();
+        function = tokens.symbols.name(name);
+        expect(sym.LEFT_PAREN);
+        int depth = out.depth();
+        if (startsDeclaration(peek())) {
+            declaration();
+        }
+        // params ::= params COMMA declaration also allows a leading comma.
+        while (peek() == sym.COMMA) {
+            at++;
+            declaration();
+        }
+        int params = out.depth() - depth;
+        expect(sym.RIGHT_PAREN);
+        if (deferring && peek() == sym.LEFT_BRACE) {
+            int end = matchingBrace(at);
+            if (end > 0) {
+                out.lazyFuncDef(name, params, deferredBody(at, function), position);
+                at = end + 1;
+                return;
+            }
+        }
+        if (statementOrSkip()) {
+            out.funcDef(name, params, position);
+        }
+    }
+
+    // The '}' closing the '{' at open, or -1 if a function, the end of input
+    // or a lexer error comes first.
+    private int matchingBrace(int open) {
+        int depth = 0;
+        for (int i = open; ; i++) {
+            switch (kind[i]) {
+                case sym.LEFT_BRACE:
+                    depth++;
+                    break;
+                case sym.RIGHT_BRACE:
+                    if (--depth == 0) {
+                        return i;
+                    }
+                    break;
+                case sym.FUNC:
+                case sym.EOF:
+                case TokenStream.FAILED:
+                    return -1;
+            }
+        }
+    }
+
+    // Parses the body starting at open when called, strictly and with a
+    // parser of its own, so bodies can be parsed from any thread.
+    private Supplier<Stmt> deferredBody(int open, String name) {
+        return () -> {
+            DescentParser body = new DescentParser(tokens);
+            ObjectAstBuilder builder = new ObjectAstBuilder(tokens.symbols);
+            body.out = builder;
+            body.at = open;
+            body.function = name;
+            try {
+                body.statement();
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            return (Stmt) builder.result();
+        };
+    }
+
+    private void declarations() throws Exception {
+        while (startsDeclaration(peek())) {
+            int mark = at;
+            int depth = out.depth();
+            try {
+                declaration();
+                expect(sym.SEMICOLON);
+            } catch (SyntaxError e) {
+                out.truncate(depth);
+                synchronize(mark);
+            }
+        }
+    }
+
+    private void declaration() throws Exception {
+        Type type;
+        switch (peek()) {
+            case sym.INT:
+                type = Type.INTEGER;
+                break;
+            case sym.BOOLEAN:
+                type = Type.BOOLEAN;
+                break;
+            case sym.VAR:
+                type = null;
+                break;
+            default:
+                throw syntaxError();
+        }
+        at++;
+        long position = position(at);
+        out.varDecl(identifier(), type, position);
+    }
+
+    // Statements up to end. Any other token that cannot start a statement
+    // is a syntax error at the same token as a failed expect(end) would be.
+    private void statements(int end) throws Exception {
+        for (int k = peek(); k != end && k != sym.EOF && k != sym.FUNC; k = peek()) {
+            statementOrSkip();
+        }
+    }
+
+    // Emits a statement; false if it had a syntax error and was skipped.
+    private boolean statementOrSkip() throws Exception {
+        int mark = at;
+        int depth = out.depth();
+        try {
+            statement();
+            return true;
+        } catch (SyntaxError e) {
+            out.truncate(depth);
+            synchronize(mark);
+            return false;
+        }
+    }
+
+    private void statement() throws Exception {
+        long position = position(at);
+        switch (peek()) {
+            case sym.LEFT_BRACE: {
+                at++;
+                int depth = out.depth();
+                declarations();
+                int decls = out.depth() - depth;
+                statements(sym.RIGHT_BRACE);
+                expect(sym.RIGHT_BRACE);
+                out.block(decls, out.depth() - depth - decls, position);
+                return;
+            }
+            case sym.IDENTIFIER: {
+                int name = identifier();
+                expect(sym.ASSIGN);
+                expression(1);
+                expect(sym.SEMICOLON);
+                out.assign(name, position);
+                return;
+            }
+            case sym.IF: {
+                at++;
+                condition();
+                statement();
+                boolean hasElse = peek() == sym.ELSE;
+                if (hasElse) {
+                    at++;
+                    statement();
+                }
+                out.ifStmt(hasElse, position);
+                return;
+            }
+            case sym.WHILE: {
+                at++;
+                condition();
+                statement();
+                out.loop(position);
+                return;
+            }
+            case sym.RETURN: {
+                at++;
+                expression(1);
+                expect(sym.SEMICOLON);
+                out.returnStmt(position);
+                return;
+            }
+            default:
+                throw syntaxError();
+        }
+    }
+
+    private void condition() throws Exception {
+        expect(sym.LEFT_PAREN);
+        expression(1);
+        expect(sym.RIGHT_PAREN);
+    }
+
+    // Binary operators of precedence at least min, all left-associative.
+    private void expression(int min) throws Exception {
+        simpleExpression();
+        while (true) {
+            int op = peek();
+            int precedence = precedence(op);
+            if (precedence < min) {
+                return;
+            }
+            long position = position(at++);
+            expression(precedence + 1);
+            out.binary(operator(op), position);
+        }
+    }
+
+    private void simpleExpression() throws Exception {
+        long position = position(at);
+        switch (peek()) {
+            case sym.INTEGER_LIT:
+                out.intLiteral(tokens.value[at++], position);
+                return;
+            case sym.TRUE:
+                at++;
+                out.boolLiteral(true, position);
+                return;
+            case sym.FALSE:
+                at++;
+                out.boolLiteral(false, position);
+                return;
+            case sym.IDENTIFIER: {
+                int name = identifier();
+                if (peek() != sym.LEFT_PAREN) {
+                    out.id(name, position);
+                    return;
+                }
+                at++;
+                int depth = out.depth();
+                if (startsExpression(peek())) {
+                    expression(1);
+                }
+                // args ::= args COMMA expr also allows a leading comma.
+                while (peek() == sym.COMMA) {
+                    at++;
+                    expression(1);
+                }
+                expect(sym.RIGHT_PAREN);
+                out.call(name, out.depth() - depth, position);
+                return;
+            }
+            case sym.LEFT_PAREN: {
+                at++;
+                expression(1);
+                expect(sym.RIGHT_PAREN);
+                return;
+            }
+            default:
+                throw syntaxError();
+        }
+    }
+
+    private static int precedence(int op) {
+        switch (op) {
+            case sym.EQ:
+                return 1;
+            case sym.LT:
+            case sym.GT:
+                return 2;
+            case sym.PLUS:
+            case sym.MINUS:
+                return 3;
+            case sym.STAR:
+            case sym.SLASH:
+                return 4;
+            default:
+                return 0;
+        }
+    }
+
+    private static Operator operator(int op) {
+        switch (op) {
+            case sym.EQ: return Operator.EQ;
+            case sym.LT: return Operator.LT;
+            case sym.GT: return Operator.GT;
+            case sym.PLUS: return Operator.ADD;
+            case sym.MINUS: return Operator.SUB;
+            case sym.STAR: return Operator.MUL;
+            default: return Operator.DIV;
+        }
+    }
+
+    private static boolean startsDeclaration(int k) {
+        return k == sym.INT || k == sym.BOOLEAN || k == sym.VAR;
+    }
+
+    private static boolean startsExpression(int k) {
+        return k == sym.INTEGER_LIT || k == sym.TRUE || k == sym.FALSE || k == sym.IDENTIFIER || k == sym.LEFT_PAREN;
+    }
+
+    private long position(int i) {
+        return Position.of(tokens.line[i], tokens.column[i]);
+    }
+
+    // Kind of the current token; reaching a lexer error rethrows it.
+    private int peek() {
+        int k = kind[at];
+        if (k == TokenStream.FAILED) {
+            throw tokens.failure;
+        }
+        return k;
+    }
+
+    private int identifier() throws Exception {
+        expect(sym.IDENTIFIER);
+        return tokens.value[at - 1];
+    }
+
+    private void expect(int k) throws Exception {
+        if (peek() != k) {
+            throw syntaxError();
+        }
+        at++;
+    }
+
+    // Reports the current token and returns the exception to throw. Without
+    // a sink this is what lr_parser prints and throws when it cannot recover.
+    // With one, an error at the token of the previous error is a consequence
+    // of that error and is not reported again.
+    private Exception syntaxError() {
+        if (errors == null) {
+            String where = kind[at] == sym.EOF ? "" : " at character " + tokens.line[at] + " of input";
+            System.err.println("Syntax error" + where);
+            System.err.println("Couldn't repair and continue parse" + where);
+            return new Exception("Can't recover from previous error(s)");
+        }
+        failures++;
+        if (at > lastError) {
+            lastError = at;
+            errors.report(new Diagnostic("Syntax error: unexpected " + describe(at), function, position(at)));
+        }
+        return new SyntaxError();
+    }
+
+    // Panic mode: skips to just after the next ';', or to the next token that
+    // starts a statement, declaration or function or ends a block. Skips at
+    // least one token if the error was at mark, so parsing always advances.
+    private void synchronize(int mark) {
+        if (at == mark) {
+            at++;
+        }
+        while (true) {
+            switch (kind[at]) {
+                case sym.SEMICOLON:
+                    at++;
+                    return;
+                case sym.LEFT_BRACE:
+                case sym.RIGHT_BRACE:
+                case sym.IF:
+                case sym.WHILE:
+                case sym.RETURN:
+                case sym.INT:
+                case sym.BOOLEAN:
+                case sym.VAR:
+                case sym.FUNC:
+                case sym.EOF:
+                case TokenStream.FAILED:
+                    return;
+                default:
+                    at++;
+            }
+        }
+    }
+
+    // After an error in a function header: skips the body, a braced block
+    // or a statement ending in ';', stopping early at the next function.
+    private void skipFunction() {
+        int depth = 0;
+        while (true) {
+            switch (kind[at]) {
+                case sym.LEFT_BRACE:
+                    depth++;
+                    break;
+                case sym.RIGHT_BRACE:
+                    if (depth > 0 && --depth == 0) {
+                        at++;
+                        return;
+                    }
+                    break;
+                case sym.SEMICOLON:
+                    if (depth == 0) {
+                        at++;
+                        return;
+                    }
+                    break;
+                case sym.FUNC:
+                case sym.EOF:
+                case TokenStream.FAILED:
+                    return;
+            }
+            at++;
+        }
+    }
+
+    private String describe(int i) {
+        switch (kind[i]) {
+            case sym.EOF: return "end of input";
+            case sym.IDENTIFIER: return "'" + tokens.symbols.name(tokens.value[i]) + "'";
+            case sym.INTEGER_LIT: return "'" + tokens.value[i] + "'";
+            case sym.FUNC: return "'func'";
+            case sym.IF: return "'if'";
+            case sym.ELSE: return "'else'";
+            case sym.WHILE: return "'while'";
+            case sym.RETURN: return "'return'";
+            case sym.INT: return "'int'";
+            case sym.BOOLEAN: return "'boolean'";
+            case sym.VAR: return "'var'";
+            case sym.TRUE: return "'true'";
+            case sym.FALSE: return "'false'";
+            case sym.ASSIGN: return "':='";
+            case sym.EQ: return "'='";
+            case sym.LT: return "'<'";
+            case sym.GT: return "'>'";
+            case sym.PLUS: return "'+'";
+            case sym.MINUS: return "'-'";
+            case sym.STAR: return "'*'";
+            case sym.SLASH: return "'/'";
+            case sym.LEFT_PAREN: return "'('";
+            case sym.RIGHT_PAREN: return "')'";
+            case sym.LEFT_BRACE: return "'{'";
+            case sym.RIGHT_BRACE: return "'}'";
+            case sym.COMMA: return "','";
+            default: return "';'";
+        }
+    }
+}
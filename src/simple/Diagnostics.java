@@ -0,0 +1,53 @@
+package simple;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// A single type error. Plain data; no stack trace is captured.
+class Diagnostic {
+    final String message;
+    final String function; // enclosing function, or null for globals/main
+    final long position;   // Position of the offending node, or Position.NONE
+
+    public Diagnostic(String message, String function, long position) {
+        this.message = message;
+        this.function = function;
+        this.position = position;
+    }
+
+    // This diagnostic with its position moved down by lines.
+    Diagnostic shifted(int lines) {
+        return lines == 0 ? this : new Diagnostic(message, function, Position.shift(position, lines));
+    }
+
+    @Override
+    public String toString() {
+        String where = position == Position.NONE ? null : "at " + Position.toString(position);
+        if (function == null) {
+            return where == null ? message : message + " (" + where + ")";
+        }
+        return message + " (in function " + function + (where == null ? ")" : ", " + where + ")");
+    }
+}
+
+// Sink that collects every diagnostic found in one run of the checker.
+public class Diagnostics {
+    private final List<Diagnostic> entries = new ArrayList<>();
+
+    void report(Diagnostic diagnostic) {
+        entries.add(diagnostic);
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    List<Diagnostic> all() {
+        return Collections.unmodifiableList(entries);
+    }
+}
@@ -0,0 +1,246 @@
+package simple;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java_cup.runtime.Symbol;
+
+// Hand-written equivalent of SimpleLexer for ASCII source held in a byte
+// buffer, usually a memory-mapped file. It scans the bytes in place, with no
+// Reader, charset decoding or copy into a char buffer, and produces the same
+// tokens, positions and errors as SimpleLexer. Use lexerFor, which falls
+// back to SimpleLexer when the source is not pure ASCII.
+public class MappedLexer implements TokenSource {
+    private final ByteBuffer input;
+    private final int end;
+    private final SymbolTable symbols;
+    private int pos;
+    private int line;      // as yyline: 0-based
+    private int lineStart; // offset of the first byte of the current line
+
+    // The token last returned by scan.
+    int tokenStart;
+    int tokenLine;
+    int tokenColumn;
+    int tokenValue;
+
+    public MappedLexer(ByteBuffer input, SymbolTable symbols) {
+        this.input = input;
+        this.pos = input.position();
+        this.end = input.limit();
+        this.lineStart = pos;
+        this.symbols = symbols;
+    }
+
+    // Maps file read-only. Files over 2 GB cannot be mapped in one buffer.
+    public static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    // A MappedLexer over source if it is pure ASCII; otherwise a SimpleLexer
+    // reading it through the platform charset, as reading the file would.
+    public static TokenSource lexerFor(ByteBuffer source, SymbolTable symbols) {
+        if (isAscii(source)) {
+            return new MappedLexer(source.duplicate(), symbols);
+        }
+        byte[] bytes = new byte[source.remaining()];
+        source.duplicate().get(bytes);
+        return new SimpleLexer(new InputStreamReader(new ByteArrayInputStream(bytes)), symbols);
+    }
+
+    static boolean isAscii(ByteBuffer source) {
+        int i = source.position();
+        int limit = source.limit();
+        for (; i + 8 <= limit; i += 8) {
+            if ((source.getLong(i) & 0x8080808080808080L) != 0) {
+                return false;
+            }
+        }
+        for (; i < limit; i++) {
+            if (source.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    @Override
+    public Symbol next_token() {
+        int kind = scan();
+        if (kind == sym.EOF) {
+            return new Symbol(sym.EOF);
+        }
+        if (kind == sym.IDENTIFIER) {
+            return new Symbol(kind, tokenLine, tokenColumn, symbols.boxed(tokenValue));
+        }
+        if (kind == sym.INTEGER_LIT) {
+            return new Symbol(kind, tokenLine, tokenColumn, tokenValue);
+        }
+        return new Symbol(kind, tokenLine, tokenColumn);
+    }
+
+    // Scans the next token without allocating: returns its kind and leaves
+    // its offset, line, column and value (the int of an INTEGER_LIT, the
+    // symbol id of an IDENTIFIER) in the token fields. The token ends at pos.
+    int scan() {
+        skipWhitespace();
+        tokenStart = pos;
+        tokenLine = line;
+        tokenColumn = pos - lineStart;
+        tokenValue = 0;
+        if (pos >= end) {
+            return sym.EOF;
+        }
+        byte c = input.get(pos++);
+        switch (c) {
+            case '(': return sym.LEFT_PAREN;
+            case ')': return sym.RIGHT_PAREN;
+            case '{': return sym.LEFT_BRACE;
+            case '}': return sym.RIGHT_BRACE;
+            case ',': return sym.COMMA;
+            case ';': return sym.SEMICOLON;
+            case '=': return sym.EQ;
+            case '<': return sym.LT;
+            case '>': return sym.GT;
+            case '+': return sym.PLUS;
+            case '-': return sym.MINUS;
+            case '*': return sym.STAR;
+            case '/': return sym.SLASH;
+            case ':':
+                if (pos < end && input.get(pos) == '=') {
+                    pos++;
+                    return sym.ASSIGN;
+                }
+                break;
+            default:
+                if (isDigit(c)) {
+                    return integer();
+                }
+                if (isLetter(c)) {
+                    return identifier();
+                }
+        }
+        throw new RuntimeException("Illegal character '" + (char) c + "' at line " + tokenLine + ", column " + tokenColumn);
+    }
+
+    int position() {
+        return pos;
+    }
+
+    // [ \t\r\n]+, counting lines the way JFlex does: \r\n is one terminator.
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte c = input.get(pos);
+            if (c == ' ' || c == '\t') {
+                pos++;
+            } else if (c == '\n' || c == '\r') {
+                pos++;
+                if (c == '\r' && pos < end && input.get(pos) == '\n') {
+                    pos++;
+                }
+                line++;
+                lineStart = pos;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private int integer() {
+        int start = tokenStart;
+        while (pos < end && isDigit(input.get(pos))) {
+            pos++;
+        }
+        if (pos - start <= 9) {
+            int value = 0;
+            for (int i = start; i < pos; i++) {
+                value = value * 10 + (input.get(i) - '0');
+            }
+            tokenValue = value;
+        } else {
+            tokenValue = Integer.parseInt(text(start)); // may overflow, as in SimpleLexer
+        }
+        return sym.INTEGER_LIT;
+    }
+
+    private int identifier() {
+        int start = tokenStart;
+        while (pos < end) {
+            byte c = input.get(pos);
+            if (!isLetter(c) && !isDigit(c) && c != '_') {
+                break;
+            }
+            pos++;
+        }
+        int length = pos - start;
+        int keyword = keyword(start, length);
+        if (keyword >= 0) {
+            return keyword;
+        }
+        tokenValue = symbols.intern(input, start, length);
+        return sym.IDENTIFIER;
+    }
+
+    // The keyword symbol for the identifier at start, or -1.
+    private int keyword(int start, int length) {
+        switch (input.get(start)) {
+            case 'f':
+                return is("func", start, length) ? sym.FUNC : is("false", start, length) ? sym.FALSE : -1;
+            case 'i':
+                return is("if", start, length) ? sym.IF : is("int", start, length) ? sym.INT : -1;
+            case 'e':
+                return is("else", start, length) ? sym.ELSE : -1;
+            case 'w':
+                return is("while", start, length) ? sym.WHILE : -1;
+            case 'r':
+                return is("return", start, length) ? sym.RETURN : -1;
+            case 'v':
+                return is("var", start, length) ? sym.VAR : -1;
+            case 'b':
+                return is("boolean", start, length) ? sym.BOOLEAN : -1;
+            case 't':
+                return is("true", start, length) ? sym.TRUE : -1;
+            default:
+                return -1;
+        }
+    }
+
+    private boolean is(String keyword, int start, int length) {
+        if (keyword.length() != length) {
+            return false;
+        }
+        for (int i = 1; i < length; i++) {
+            if (keyword.charAt(i) != input.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String text(int start) {
+        StringBuilder sb = new StringBuilder(pos - start);
+        for (int i = start; i < pos; i++) {
+            sb.append((char) input.get(i));
+        }
+        return sb.toString();
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(byte c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
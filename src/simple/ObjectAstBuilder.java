@@ -0,0 +1,134 @@
+package simple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Builds the object AST in Ast.java from the nodes of a program in
+// post-order, as a stack machine. Each call pops the node's children
+// (pushed by earlier calls, in source order) and pushes the new node, so
+// the parser needs no handles. Lists are counted by the parser from
+// depth(). A parser recovering from a syntax error drops a half-built
+// subtree with truncate(depth) taken before it. program() leaves the
+// ProgramNode.
+class ObjectAstBuilder {
+    private final SymbolTable symbols;
+    private Object[] stack = new Object[64];
+    private int depth;
+
+    ObjectAstBuilder(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    // The node built last: after program(), the whole program.
+    Object result() {
+        return stack[depth - 1];
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    void truncate(int depth) {
+        Arrays.fill(stack, depth, this.depth, null);
+        this.depth = depth;
+    }
+
+    private void push(Object node) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = node;
+    }
+
+    private Object pop() {
+        Object node = stack[--depth];
+        stack[depth] = null;
+        return node;
+    }
+
+    // The top n nodes, in the order they were pushed.
+    @SuppressWarnings("unchecked")
+    private <T> List<T> list(int n) {
+        List<T> list = new ArrayList<>(n);
+        for (int i = depth - n; i < depth; i++) {
+            list.add((T) stack[i]);
+        }
+        truncate(depth - n);
+        return list;
+    }
+
+    void varDecl(int symbol, Type type, long position) {
+        push(new VarDecl(symbol, symbols.name(symbol), type, position));
+    }
+
+    // Pops the params, then the body.
+    void funcDef(int symbol, int params, long position) {
+        Stmt body = (Stmt) pop();
+        List<VarDecl> list = list(params);
+        push(new FuncDef(symbol, symbols.name(symbol), list, body, position));
+    }
+
+    // Pops the params; the body is parsed later, by body.
+    void lazyFuncDef(int symbol, int params, Supplier<Stmt> body, long position) {
+        List<VarDecl> list = list(params);
+        push(new FuncDef(symbol, symbols.name(symbol), list, body, position));
+    }
+
+    // Pops the declarations, then the statements.
+    void block(int declarations, int statements, long position) {
+        List<Stmt> stmts = list(statements);
+        List<VarDecl> decls = list(declarations);
+        push(new BlockStmt(decls, stmts, position));
+    }
+
+    void assign(int symbol, long position) {
+        push(new AssignStmt(symbol, symbols.name(symbol), (Expr) pop(), position));
+    }
+
+    // Pops the condition, the then branch and, if hasElse, the else branch.
+    void ifStmt(boolean hasElse, long position) {
+        Stmt otherwise = hasElse ? (Stmt) pop() : null;
+        Stmt then = (Stmt) pop();
+        push(new IfStmt((Expr) pop(), then, otherwise, position));
+    }
+
+    void loop(long position) {
+        Stmt body = (Stmt) pop();
+        push(new LoopStmt((Expr) pop(), body, position));
+    }
+
+    void returnStmt(long position) {
+        push(new ReturnStmt((Expr) pop(), position));
+    }
+
+    void binary(Operator op, long position) {
+        Expr right = (Expr) pop();
+        push(new BinaryExpr((Expr) pop(), op, right, position));
+    }
+
+    void id(int symbol, long position) {
+        push(new IdExpr(symbol, symbols.name(symbol), position));
+    }
+
+    void intLiteral(int value, long position) {
+        push(new IntLiteral(value, position));
+    }
+
+    void boolLiteral(boolean value, long position) {
+        push(new BoolLiteral(value, position));
+    }
+
+    void call(int symbol, int args, long position) {
+        push(new FuncCall(symbol, symbols.name(symbol), list(args), position));
+    }
+
+    // Pops the functions, the globals and the main statements.
+    void program(int functions, int globals, int statements) {
+        List<Stmt> main = list(statements);
+        List<VarDecl> globalDecls = list(globals);
+        List<FuncDef> fns = list(functions);
+        push(new ProgramNode(fns, globalDecls, main, symbols));
+    }
+}
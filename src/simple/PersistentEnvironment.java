@@ -0,0 +1,172 @@
+package simple;
+
+// An immutable environment: every version stays valid, enterScope and
+// exitScope are O(1), and declare copies only the path to one trie leaf.
+// Versions can be shared freely between threads or speculative branches;
+// forking the global scope costs nothing. Keys are symbol ids, as in
+// ScopeTable; each binding remembers the depth of the scope it was made in
+// so redeclarations in the current scope can be detected.
+final class PersistentEnvironment<V> {
+    private final HashTrie<V> bindings;
+    private final int depth;
+    private final PersistentEnvironment<V> enclosing; // version at enterScope
+
+    private PersistentEnvironment(HashTrie<V> bindings, int depth, PersistentEnvironment<V> enclosing) {
+        this.bindings = bindings;
+        this.depth = depth;
+        this.enclosing = enclosing;
+    }
+
+    // An environment with only the global scope open, and nothing in it.
+    static <V> PersistentEnvironment<V> empty() {
+        return new PersistentEnvironment<>(HashTrie.empty(), 1, null);
+    }
+
+    PersistentEnvironment<V> enterScope() {
+        return new PersistentEnvironment<>(bindings, depth + 1, this);
+    }
+
+    // The version this scope was entered from, without its declarations.
+    PersistentEnvironment<V> exitScope() {
+        if (enclosing == null) {
+            throw new IllegalStateException("Cannot exit the global scope.");
+        }
+        return enclosing;
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    V get(int symbol) {
+        HashTrie.Leaf<V> leaf = bindings.get(symbol);
+        return leaf == null ? null : leaf.value;
+    }
+
+    boolean isDeclaredInCurrentScope(int symbol) {
+        HashTrie.Leaf<V> leaf = bindings.get(symbol);
+        return leaf != null && leaf.depth == depth;
+    }
+
+    // A new version with symbol bound in the current scope, shadowing any
+    // outer binding. The caller checks isDeclaredInCurrentScope first.
+    PersistentEnvironment<V> declare(int symbol, V value) {
+        return new PersistentEnvironment<>(bindings.put(symbol, value, depth), depth, enclosing);
+    }
+}
+
+// Scopes kept as PersistentEnvironment versions, one after another: each
+// call moves to another version, and version() is the current one, which
+// stays valid and can be shared whatever happens later. Resolver takes
+// these instead of a ScopeTable when asked (CheckOptions.persistentScopes).
+final class PersistentScopes<V> implements Scopes<V> {
+    private PersistentEnvironment<V> version = PersistentEnvironment.empty();
+
+    PersistentEnvironment<V> version() {
+        return version;
+    }
+
+    @Override
+    public void enterScope() {
+        version = version.enterScope();
+    }
+
+    @Override
+    public void exitScope() {
+        version = version.exitScope();
+    }
+
+    @Override
+    public V get(int symbol) {
+        return version.get(symbol);
+    }
+
+    @Override
+    public boolean isDeclaredInCurrentScope(int symbol) {
+        return version.isDeclaredInCurrentScope(symbol);
+    }
+
+    @Override
+    public void declare(int symbol, V value) {
+        version = version.declare(symbol, value);
+    }
+}
+
+// Hash array mapped trie keyed by int. Symbol ids are already dense and
+// distinct, so the key serves as its own hash: five bits select the child
+// at each level and two keys never collide. Nodes are bitmap-compressed and
+// never modified; put copies the nodes on the path it changes.
+final class HashTrie<V> {
+    private static final HashTrie<?> EMPTY = new HashTrie<>(0, new Object[0]);
+
+    static final class Leaf<V> {
+        final int key;
+        final V value;
+        final int depth;
+
+        Leaf(int key, V value, int depth) {
+            this.key = key;
+            this.value = value;
+            this.depth = depth;
+        }
+    }
+
+    private final int bitmap;
+    private final Object[] children; // Leaf or HashTrie, in bit order
+
+    private HashTrie(int bitmap, Object[] children) {
+        this.bitmap = bitmap;
+        this.children = children;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> HashTrie<V> empty() {
+        return (HashTrie<V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    Leaf<V> get(int key) {
+        HashTrie<V> node = this;
+        for (int shift = 0; ; shift += 5) {
+            int bit = 1 << ((key >>> shift) & 31);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object child = node.children[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (child instanceof Leaf) {
+                Leaf<V> leaf = (Leaf<V>) child;
+                return leaf.key == key ? leaf : null;
+            }
+            node = (HashTrie<V>) child;
+        }
+    }
+
+    HashTrie<V> put(int key, V value, int depth) {
+        return put(new Leaf<>(key, value, depth), 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private HashTrie<V> put(Leaf<V> leaf, int shift) {
+        int bit = 1 << ((leaf.key >>> shift) & 31);
+        int index = Integer.bitCount(bitmap & (bit - 1));
+        if ((bitmap & bit) == 0) {
+            Object[] grown = new Object[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, index);
+            grown[index] = leaf;
+            System.arraycopy(children, index, grown, index + 1, children.length - index);
+            return new HashTrie<>(bitmap | bit, grown);
+        }
+        Object child = children[index];
+        Object replacement;
+        if (child instanceof HashTrie) {
+            replacement = ((HashTrie<V>) child).put(leaf, shift + 5);
+        } else if (((Leaf<V>) child).key == leaf.key) {
+            replacement = leaf;
+        } else {
+            replacement = HashTrie.<V>empty().put((Leaf<V>) child, shift + 5).put(leaf, shift + 5);
+        }
+        Object[] copy = children.clone();
+        copy[index] = replacement;
+        return new HashTrie<>(bitmap, copy);
+    }
+}
@@ -0,0 +1,36 @@
+package simple;
+
+// A source position packed into one long: the line in the high 32 bits and
+// the column in the low 32, both 0-based as the lexers count them, though
+// printed 1-based as editors show them. Taken from the node's token, so no
+// source text is kept. NONE marks a node or diagnostic without a position.
+final class Position {
+    static final long NONE = -1L;
+
+    private Position() {
+    }
+
+    static long of(int line, int column) {
+        if (line < 0 || column < 0) {
+            return NONE;
+        }
+        return (long) line << 32 | column;
+    }
+
+    static int line(long position) {
+        return (int) (position >>> 32);
+    }
+
+    static int column(long position) {
+        return (int) position;
+    }
+
+    // The same column, lines further down (or up, for negative lines).
+    static long shift(long position, int lines) {
+        return position == NONE ? NONE : of(line(position) + lines, column(position));
+    }
+
+    static String toString(long position) {
+        return "line " + (line(position) + 1) + ", column " + (column(position) + 1);
+    }
+}
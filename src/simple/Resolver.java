@@ -0,0 +1,165 @@
+package simple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Name resolution, run before inference. Gives every declaration (function,
+// parameter, global or local) a dense slot number and records on each use,
+// IdExpr, AssignStmt target or FuncCall, the slot of the declaration it
+// refers to, so the checker can keep types in a TypeExpr[] instead of
+// looking names up in scopes.
+//
+// Scopes follow the checker: function names first, then each function body
+// (params in their own scope, seeing only the functions), then the globals
+// and main. Undeclared uses and duplicate declarations are errors here and
+// are left with slot -1; functions take the lowest slots.
+//
+// Scopes live in a ScopeTable, or in PersistentScopes when persistent is
+// set; both resolve alike.
+class Resolver implements StmtVisitor<Void, RuntimeException>, ExprVisitor<Void, RuntimeException> {
+    private final Scopes<Integer> scopes;
+    private final List<Diagnostic> errors = new ArrayList<>();
+    private String function;
+    private int slots;
+
+    private Resolver(Scopes<Integer> scopes) {
+        this.scopes = scopes;
+    }
+
+    static Resolution resolve(ProgramNode program, boolean persistent) {
+        Resolver resolver = new Resolver(persistent
+                ? new PersistentScopes<>()
+                : new ScopeTable<>(program.symbols.size()));
+        resolver.scopes.enterScope();
+        for (FuncDef funcDef : program.fns) {
+            funcDef.slot = resolver.declare(funcDef.symbol, funcDef.name, funcDef.position);
+        }
+        int functionSlots = resolver.slots;
+        for (FuncDef funcDef : program.fns) {
+            resolver.function = funcDef.name;
+            resolver.scopes.enterScope();
+            for (VarDecl param : funcDef.params) {
+                param.accept(resolver);
+            }
+            funcDef.body().accept(resolver);
+            resolver.scopes.exitScope();
+        }
+        resolver.function = null;
+        for (VarDecl decl : program.globals) {
+            decl.accept(resolver);
+        }
+        for (Stmt stmt : program.main) {
+            stmt.accept(resolver);
+        }
+        return new Resolution(resolver.slots, functionSlots, resolver.errors);
+    }
+
+    private int declare(int symbol, String name, long position) {
+        if (scopes.isDeclaredInCurrentScope(symbol)) {
+            errors.add(new Diagnostic("Variable '" + name + "' is already defined in this scope.", function, position));
+            return -1;
+        }
+        scopes.declare(symbol, slots);
+        return slots++;
+    }
+
+    private int use(int symbol, String name, long position) {
+        Integer slot = scopes.get(symbol);
+        if (slot == null) {
+            errors.add(new Diagnostic("Variable named " + name + " Not declared in this program", function, position));
+            return -1;
+        }
+        return slot;
+    }
+
+    @Override
+    public Void visitVarDecl(VarDecl stmt) {
+        stmt.slot = declare(stmt.symbol, stmt.name, stmt.position);
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(BlockStmt stmt) {
+        scopes.enterScope();
+        for (VarDecl decl : stmt.declarations) {
+            decl.accept(this);
+        }
+        for (Stmt s : stmt.statements) {
+            s.accept(this);
+        }
+        scopes.exitScope();
+        return null;
+    }
+
+    @Override
+    public Void visitAssign(AssignStmt stmt) {
+        stmt.slot = use(stmt.symbol, stmt.id, stmt.position);
+        return stmt.expr.accept(this);
+    }
+
+    @Override
+    public Void visitIf(IfStmt stmt) {
+        stmt.conditional.accept(this);
+        stmt.t.accept(this);
+        if (stmt.e != null) {
+            stmt.e.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitLoop(LoopStmt stmt) {
+        stmt.conditional.accept(this);
+        return stmt.body.accept(this);
+    }
+
+    @Override
+    public Void visitReturn(ReturnStmt stmt) {
+        return stmt.expr.accept(this);
+    }
+
+    @Override
+    public Void visitBinary(BinaryExpr expr) {
+        expr.left.accept(this);
+        return expr.right.accept(this);
+    }
+
+    @Override
+    public Void visitId(IdExpr expr) {
+        expr.slot = use(expr.symbol, expr.name, expr.position);
+        return null;
+    }
+
+    @Override
+    public Void visitIntLiteral(IntLiteral expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitBoolLiteral(BoolLiteral expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitFuncCall(FuncCall expr) {
+        expr.slot = use(expr.symbol, expr.name, expr.position);
+        for (Expr arg : expr.args) {
+            arg.accept(this);
+        }
+        return null;
+    }
+}
+
+// Outcome of resolving one program: how many slots it uses, how many of
+// them (the first ones) hold functions, and the errors found, in order.
+class Resolution {
+    final int slotCount;
+    final int functionSlots;
+    final List<Diagnostic> errors;
+
+    Resolution(int slotCount, int functionSlots, List<Diagnostic> errors) {
+        this.slotCount = slotCount;
+        this.functionSlots = functionSlots;
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,66 @@
+package simple;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+// Measures how checking one program scales with the threads of --parallel.
+// The file is parsed once and checked --runs times with each thread count
+// to warm up; then for 1, 2, ... --max-threads threads (all the processors
+// by default) it is checked --runs times more, and the median time and the
+// speedup over one thread are printed. Every count takes the call-graph
+// component path, one thread included, so only the threads differ.
+//
+// Errors are collected rather than thrown, so a wrong program is still
+// checked whole. A program whose call graph has few components has little
+// to spread over threads; the first line says how many it has.
+public class ScalingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int runs = 10;
+        int i = 0;
+        for (; i < args.length - 1; i++) {
+            if (args[i].startsWith("--max-threads=")) {
+                maxThreads = (int) CheckerFlags.number(args[i], "--max-threads=", Integer.MAX_VALUE);
+            } else if (args[i].startsWith("--runs=")) {
+                runs = (int) CheckerFlags.number(args[i], "--runs=", Integer.MAX_VALUE);
+            } else {
+                break;
+            }
+        }
+        if (i != args.length - 1 || maxThreads < 1 || runs < 1) {
+            System.err.println("Usage: java simple.ScalingBenchmark [--max-threads=<n>] [--runs=<n>] <path_to_test_file>");
+            System.exit(1);
+        }
+        SymbolTable symbols = new SymbolTable();
+        ProgramNode program = (ProgramNode) new parser(MappedLexer.lexerFor(MappedLexer.map(Paths.get(args[i])), symbols)).parse().value;
+        System.out.printf("%s: %d function(s) in %d call-graph component(s), %d processor(s)%n", args[i],
+                program.fns.size(), new CallGraph(program.fns).components().size(),
+                Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            median(program, threads, runs);
+        }
+        System.out.println("threads  median ms  speedup");
+        double single = 0;
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            double median = median(program, threads, runs);
+            if (threads == 1) {
+                single = median;
+            }
+            System.out.printf("%7d  %9.3f  %7.2f%n", threads, median, single / median);
+        }
+    }
+
+    // Median time of runs checks with the given threads, in milliseconds.
+    private static double median(ProgramNode program, int threads, int runs) throws Exception {
+        CheckOptions options = new CheckOptions().parallelism(threads);
+        double[] times = new double[runs];
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            new TypeChecker(new Diagnostics(), options, null).typeCheckProgram(program, null);
+            times[run] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        return times[runs / 2];
+    }
+}
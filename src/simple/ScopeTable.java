@@ -0,0 +1,104 @@
+package simple;
+
+import java.util.Arrays;
+
+// Nested scopes as the Resolver uses them: enterScope and exitScope bracket
+// each scope, and declare binds a symbol in the innermost one.
+interface Scopes<V> {
+    void enterScope();
+
+    void exitScope();
+
+    V get(int symbol);
+
+    boolean isDeclaredInCurrentScope(int symbol);
+
+    // The caller checks isDeclaredInCurrentScope first.
+    void declare(int symbol, V value);
+}
+
+// Nested scopes as one table from symbol id to a stack of bindings, innermost
+// first, plus an undo log of the symbols declared since each enterScope.
+// Symbol ids are dense, so the table is an array: lookup is a single index
+// however deep the nesting, and entering a scope only records the current
+// log length, so it allocates nothing.
+class ScopeTable<V> implements Scopes<V> {
+    private static final class Binding<V> {
+        final V value;
+        final int depth;
+        final Binding<V> shadowed;
+
+        Binding(V value, int depth, Binding<V> shadowed) {
+            this.value = value;
+            this.depth = depth;
+            this.shadowed = shadowed;
+        }
+    }
+
+    private Binding<V>[] table;
+    private int[] log = new int[16];
+    private int logSize;
+    private int[] marks = new int[8];
+    private int depth;
+
+    // symbols is a size hint; larger ids grow the table. Generic arrays
+    // cannot be created directly; the table only ever holds Binding<V>s.
+    @SuppressWarnings("unchecked")
+    ScopeTable(int symbols) {
+        this.table = (Binding<V>[]) new Binding<?>[Math.max(symbols, 16)];
+    }
+
+    @Override
+    public void enterScope() {
+        if (depth == marks.length) {
+            marks = Arrays.copyOf(marks, depth * 2);
+        }
+        marks[depth++] = logSize;
+    }
+
+    // Undoes every declaration made since the matching enterScope.
+    @Override
+    public void exitScope() {
+        if (depth == 0) {
+            throw new IllegalStateException("No scope is active.");
+        }
+        int mark = marks[--depth];
+        while (logSize > mark) {
+            int symbol = log[--logSize];
+            table[symbol] = table[symbol].shadowed;
+        }
+    }
+
+    @Override
+    public V get(int symbol) {
+        Binding<V> binding = binding(symbol);
+        return binding == null ? null : binding.value;
+    }
+
+    @Override
+    public boolean isDeclaredInCurrentScope(int symbol) {
+        Binding<V> binding = binding(symbol);
+        return binding != null && binding.depth == depth;
+    }
+
+    // The caller checks isDeclaredInCurrentScope first; declaring a symbol
+    // twice in one scope shadows the first binding until the scope exits.
+    @Override
+    public void declare(int symbol, V value) {
+        if (depth == 0) {
+            throw new IllegalStateException("No scope is active.");
+        }
+        if (symbol >= table.length) {
+            table = Arrays.copyOf(table, Math.max(table.length * 2, symbol + 1));
+        }
+        table[symbol] = new Binding<>(value, depth, table[symbol]);
+        if (logSize == log.length) {
+            log = Arrays.copyOf(log, logSize * 2);
+        }
+        log[logSize++] = symbol;
+    }
+
+    private Binding<V> binding(int symbol) {
+        return symbol >= 0 && symbol < table.length ? table[symbol] : null;
+    }
+}
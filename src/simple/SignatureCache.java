@@ -0,0 +1,415 @@
+package simple;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Content-addressed on-disk cache of check outcomes. An entry is keyed by a
+// SHA-256 of the checker version, the options that affect output and the
+// source bytes, so an unchanged file can be answered without parsing or
+// inference. The parser and lazy parsing count as such options: they decide
+// which syntax errors are found. Entries hold the global bindings of a passing check (or the
+// errors of a failing one) in a small binary format.
+//
+// Bump VERSION whenever inference or the format changes; old entries then
+// simply stop matching. Unreadable entries are deleted and treated as
+// misses. The directory is kept under maxBytes by evicting the least
+// recently used entries, using file modification time as the use stamp.
+// Stores keep a running total of the directory's size, counted when the
+// cache is opened, and only list the directory to evict once the total
+// passes maxBytes, or every RECOUNT_STORES stores to take in what other
+// processes have written. Eviction goes down to nine tenths of maxBytes,
+// so a full cache lists its directory once per tenth of it written, not
+// on every store.
+public class SignatureCache {
+    static final String VERSION = "simple-typechecker/5";
+    private static final int MAGIC = 0x53494743; // "SIGC"
+    private static final String SUFFIX = ".sig";
+    private static final int MAX_STRING = 1 << 24;
+    // Highest type variable id an entry may hold. Decoding allocates up to
+    // the largest id it reads, so a corrupt entry or reply must not name a
+    // bigger one; an outcome that would is not cached.
+    private static final int MAX_VAR_ID = (1 << 22) - 1;
+    private static final int RECOUNT_STORES = 256;
+
+    private static final byte PASSED = 0, THREW = 1, DIAGNOSED = 2;
+    private static final byte T_CONST = 0, T_VAR = 1, T_FUNC = 2, T_ERROR = 3;
+    private static final Type[] TYPES = Type.values();
+
+    private final Path dir;
+    private final long maxBytes;
+    private final AtomicLong bytes = new AtomicLong(); // in the directory, as far as this cache knows
+    private final AtomicInteger stores = new AtomicInteger();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    public SignatureCache(Path dir, long maxBytes) throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(dir);
+        evict();
+    }
+
+    public String key(byte[] source, boolean allErrors, boolean descent, boolean lazy, CheckOptions options) {
+        return key(ByteBuffer.wrap(source), allErrors, descent, lazy, options);
+    }
+
+    public String key(ByteBuffer source, boolean allErrors, boolean descent, boolean lazy, CheckOptions options) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(VERSION.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) (allErrors ? 1 : 0));
+            digest.update((byte) (descent ? 1 : 0));
+            digest.update((byte) (lazy ? 1 : 0));
+            digest.update((byte) (options.twoPhase || options.parallelism > 1 ? 1 : 0));
+            digest.update((byte) (options.reachableOnly ? 1 : 0));
+            digest.update(source.duplicate());
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // The cached outcome for key, or null on a miss.
+    public CachedCheck load(String key) {
+        Path file = dir.resolve(key + SUFFIX);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            CachedCheck entry = decode(key, Files.readAllBytes(file));
+            if (entry == null) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // another process may have removed it already
+            }
+            return null;
+        }
+    }
+
+    // Writes the entry through a temporary file and a rename, so readers
+    // never see a partial file, then adds it to the running total.
+    public void store(String key, CachedCheck entry) throws IOException {
+        byte[] encoded = encode(key, entry);
+        Path tmp = Files.createTempFile(dir, key, ".tmp");
+        long added = encoded.length;
+        try {
+            Files.write(tmp, encoded);
+            Path target = dir.resolve(key + SUFFIX);
+            try {
+                added -= Files.size(target);
+            } catch (NoSuchFileException absent) {
+                // a new entry
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        if (bytes.addAndGet(added) > maxBytes || stores.incrementAndGet() % RECOUNT_STORES == 0) {
+            evict();
+        }
+    }
+
+    // Counts the directory and trims it if over maxBytes. Only one thread of this
+    // cache evicts at a time; the others go on with the total as it is.
+    // Checks in other processes may store and evict at the same time; an
+    // entry that disappears meanwhile is simply passed over.
+    private void evict() throws IOException {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            bytes.set(trim());
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    // Returns the bytes left in the directory.
+    private long trim() throws IOException {
+        Map<Path, Long> sizes = new HashMap<>();
+        Map<Path, Long> used = new HashMap<>();
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    long size = Files.size(file);
+                    used.put(file, Files.getLastModifiedTime(file).toMillis());
+                    sizes.put(file, size);
+                    total += size;
+                } catch (NoSuchFileException gone) {
+                    // evicted by another check
+                }
+            }
+        }
+        if (total <= maxBytes) {
+            return total;
+        }
+        long target = maxBytes - maxBytes / 10;
+        List<Path> entries = new ArrayList<>(sizes.keySet());
+        entries.sort((a, b) -> Long.compare(used.get(a), used.get(b)));
+        for (Path file : entries) {
+            if (total <= target) {
+                break;
+            }
+            Files.deleteIfExists(file);
+            total -= sizes.get(file);
+        }
+        return total;
+    }
+
+    static byte[] encode(String key, CachedCheck entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        writeString(out, VERSION);
+        writeString(out, key);
+        out.writeInt(entry.skipped.size());
+        for (String name : entry.skipped) {
+            writeString(out, name);
+        }
+        if (entry.thrown != null) {
+            out.writeByte(THREW);
+            writeString(out, entry.thrown);
+        } else if (entry.diagnostics != null) {
+            out.writeByte(DIAGNOSED);
+            out.writeInt(entry.diagnostics.size());
+            for (Diagnostic d : entry.diagnostics) {
+                writeString(out, d.message);
+                out.writeBoolean(d.function != null);
+                if (d.function != null) {
+                    writeString(out, d.function);
+                }
+                out.writeLong(d.position);
+            }
+        } else {
+            out.writeByte(PASSED);
+            Map<String, TypeExpr> globals = entry.globals.globals();
+            out.writeInt(globals.size());
+            for (Map.Entry<String, TypeExpr> binding : globals.entrySet()) {
+                writeString(out, binding.getKey());
+                writeType(out, binding.getValue());
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // Returns null if the bytes are not an entry for key from this version.
+    // Anything else wrong with them, whether a corrupt file or a bad reply
+    // from a CheckServer, is an IOException; counts and ids are checked
+    // before anything is allocated for them.
+    static CachedCheck decode(String key, byte[] bytes) throws IOException {
+        try {
+            return decode(key, new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (RuntimeException e) {
+            throw new IOException("corrupt entry: " + e, e);
+        }
+    }
+
+    private static CachedCheck decode(String key, DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || !readString(in).equals(VERSION) || !readString(in).equals(key)) {
+            return null;
+        }
+        int skippedCount = readCount(in, 4);
+        List<String> skipped = new ArrayList<>(skippedCount);
+        for (int i = 0; i < skippedCount; i++) {
+            skipped.add(readString(in));
+        }
+        switch (in.readByte()) {
+            case THREW:
+                return CachedCheck.threw(readString(in));
+            case DIAGNOSED: {
+                int count = readCount(in, 13);
+                List<Diagnostic> diagnostics = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    String message = readString(in);
+                    String function = in.readBoolean() ? readString(in) : null;
+                    diagnostics.add(new Diagnostic(message, function, in.readLong()));
+                }
+                return CachedCheck.diagnosed(diagnostics, skipped);
+            }
+            case PASSED: {
+                TypeEnvironment globals = new TypeEnvironment();
+                TypeStore store = new TypeStore();
+                Map<Integer, TypeVar> vars = new HashMap<>();
+                int count = readCount(in, 5);
+                for (int i = 0; i < count; i++) {
+                    String name = readString(in);
+                    globals.declare(name, readType(in, store, vars));
+                }
+                return CachedCheck.passed(globals, skipped);
+            }
+            default:
+                return null;
+        }
+    }
+
+    // Variables are written by representative id so the rebuilt types print
+    // exactly as they did after the original check. A function type is its
+    // param count, the params, then the return type. Both directions use an
+    // explicit stack, so a deeply nested type costs heap, not stack frames.
+    private static void writeType(DataOutputStream out, TypeExpr type) throws IOException {
+        ArrayDeque<TypeExpr> work = new ArrayDeque<>();
+        work.push(type);
+        while (!work.isEmpty()) {
+            TypeExpr rep = work.pop().find();
+            if (rep instanceof TypeConst) {
+                out.writeByte(T_CONST);
+                out.writeByte(((TypeConst) rep).type.ordinal());
+            } else if (rep instanceof TypeVar) {
+                int id = ((TypeVar) rep).id;
+                if (id > MAX_VAR_ID) {
+                    throw new IOException("too many type variables to cache");
+                }
+                out.writeByte(T_VAR);
+                out.writeInt(id);
+            } else if (rep instanceof FuncType) {
+                FuncType funcType = (FuncType) rep;
+                out.writeByte(T_FUNC);
+                out.writeInt(funcType.paramTypes.size());
+                work.push(funcType.returnType);
+                for (int i = funcType.paramTypes.size() - 1; i >= 0; i--) {
+                    work.push(funcType.paramTypes.get(i));
+                }
+            } else {
+                out.writeByte(T_ERROR);
+            }
+        }
+    }
+
+    // open holds, for each function type being read, its parts still to
+    // come and its param count; finished types collect on done.
+    private static TypeExpr readType(DataInputStream in, TypeStore store, Map<Integer, TypeVar> vars) throws IOException {
+        ArrayDeque<int[]> open = new ArrayDeque<>();
+        List<TypeExpr> done = new ArrayList<>();
+        do {
+            TypeExpr type;
+            switch (in.readByte()) {
+                case T_CONST: {
+                    int ordinal = in.readByte();
+                    if (ordinal < 0 || ordinal >= TYPES.length) {
+                        throw new IOException("corrupt type constant " + ordinal);
+                    }
+                    type = TypeConst.of(TYPES[ordinal]);
+                    break;
+                }
+                case T_VAR: {
+                    int id = in.readInt();
+                    if (id < 0 || id > MAX_VAR_ID) {
+                        throw new IOException("corrupt type variable " + id);
+                    }
+                    type = vars.computeIfAbsent(id, i -> new TypeVar(store, i));
+                    break;
+                }
+                case T_FUNC: {
+                    int count = readCount(in, 1);
+                    open.push(new int[] {count + 1, count});
+                    continue;
+                }
+                case T_ERROR:
+                    type = ErrorType.INSTANCE;
+                    break;
+                default:
+                    throw new IOException("corrupt type tag");
+            }
+            done.add(type);
+            while (!open.isEmpty() && --open.peek()[0] == 0) {
+                TypeExpr returnType = done.remove(done.size() - 1);
+                done.add(store.funcType(returnType, TypeCopier.takeLast(done, open.pop()[1])));
+            }
+        } while (!open.isEmpty());
+        return done.get(0);
+    }
+
+    // A count of items that take at least itemBytes each; more than the
+    // bytes left could hold means the entry is corrupt.
+    private static int readCount(DataInputStream in, int itemBytes) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || (long) count * itemBytes > in.available()) {
+            throw new IOException("corrupt count " + count);
+        }
+        return count;
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING) {
+            throw new IOException("corrupt string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
+
+// The outcome of checking one file, as cached and as CheckServer sends it:
+// the global bindings of a passing check, the message of a fail-fast error,
+// or the collected diagnostics; with the functions the check skipped as
+// unreachable.
+class CachedCheck {
+    final TypeEnvironment globals;
+    final String thrown;
+    final List<Diagnostic> diagnostics;
+    final List<String> skipped;
+
+    private CachedCheck(TypeEnvironment globals, String thrown, List<Diagnostic> diagnostics, List<String> skipped) {
+        this.globals = globals;
+        this.thrown = thrown;
+        this.diagnostics = diagnostics;
+        this.skipped = skipped;
+    }
+
+    static CachedCheck passed(TypeEnvironment globals, List<String> skipped) {
+        return new CachedCheck(globals, null, null, skipped);
+    }
+
+    static CachedCheck threw(String message) {
+        return new CachedCheck(null, message, null, List.of());
+    }
+
+    static CachedCheck diagnosed(List<Diagnostic> diagnostics, List<String> skipped) {
+        return new CachedCheck(null, null, diagnostics, skipped);
+    }
+}
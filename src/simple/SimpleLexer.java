@@ -7,7 +7,7 @@ import java_cup.runtime.Symbol;
 
 
 @SuppressWarnings("fallthrough")
-public class SimpleLexer implements java_cup.runtime.Scanner {
+public class SimpleLexer implements java_cup.runtime.Scanner, TokenSource {
 
   /** This character denotes the end of file. */
   public static final int YYEOF = -1;
@@ -315,6 +315,19 @@ public class SimpleLexer implements java_cup.runtime.Scanner {
   /** Whether the user-EOF-code has already been executed. */
   private boolean zzEOFDone;
 
+  /* user code: */
+    // Identifier tokens carry ids from this table rather than their text.
+    private SymbolTable symbols = new SymbolTable();
+
+    public SimpleLexer(java.io.Reader in, SymbolTable symbols) {
+        this(in);
+        this.symbols = symbols;
+    }
+
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
 
   /**
    * Creates a new scanner
@@ -810,7 +823,7 @@ public class SimpleLexer implements java_cup.runtime.Scanner {
           // fall through
           case 42: break;
           case 15:
-            { return new Symbol(sym.IDENTIFIER, yyline, yycolumn, yytext());
+            { return new Symbol(sym.IDENTIFIER, yyline, yycolumn, symbols.boxed(symbols.intern(zzBuffer, zzStartRead, zzMarkedPos - zzStartRead)));
             }
           // fall through
           case 43: break;
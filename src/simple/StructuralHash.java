@@ -0,0 +1,153 @@
+package simple;
+
+// 64-bit structural hash of a function definition: its name, parameters and
+// body, ignoring nothing that could change what the checker infers or where
+// its errors are reported. Positions are taken relative to the function's
+// own line, so a function that only moved up or down keeps its hash; its
+// reused errors are shifted along with it (see baseLine).
+class StructuralHash implements StmtVisitor<Void, RuntimeException>, ExprVisitor<Void, RuntimeException> {
+    private long h = 0xcbf29ce484222325L;
+    private final int base;
+
+    private StructuralHash(int base) {
+        this.base = base;
+    }
+
+    // The line positions in funcDef's hash are relative to.
+    static int baseLine(FuncDef funcDef) {
+        return funcDef.position == Position.NONE ? 0 : Position.line(funcDef.position);
+    }
+
+    static long of(FuncDef funcDef) {
+        StructuralHash hash = new StructuralHash(baseLine(funcDef));
+        hash.mix(Position.column(funcDef.position));
+        hash.mix(funcDef.name);
+        hash.mix(funcDef.params.size());
+        for (VarDecl param : funcDef.params) {
+            param.accept(hash);
+        }
+        funcDef.body().accept(hash);
+        return hash.h;
+    }
+
+    private void mix(long value) {
+        h ^= value;
+        h *= 0x100000001b3L;
+        h ^= h >>> 29;
+    }
+
+    private void mix(String value) {
+        mix(value.hashCode());
+        mix(value.length());
+    }
+
+    private void at(AstNode node) {
+        long position = node.position();
+        mix(position == Position.NONE ? position : Position.shift(position, -base));
+    }
+
+    @Override
+    public Void visitVarDecl(VarDecl stmt) {
+        mix(1);
+        at(stmt);
+        mix(stmt.type == null ? -1 : stmt.type.ordinal());
+        mix(stmt.name);
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(BlockStmt stmt) {
+        mix(2);
+        at(stmt);
+        mix(stmt.declarations.size());
+        for (VarDecl decl : stmt.declarations) {
+            decl.accept(this);
+        }
+        mix(stmt.statements.size());
+        for (Stmt s : stmt.statements) {
+            s.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitAssign(AssignStmt stmt) {
+        mix(3);
+        at(stmt);
+        mix(stmt.id);
+        return stmt.expr.accept(this);
+    }
+
+    @Override
+    public Void visitIf(IfStmt stmt) {
+        mix(4);
+        at(stmt);
+        stmt.conditional.accept(this);
+        stmt.t.accept(this);
+        mix(stmt.e == null ? 0 : 1);
+        if (stmt.e != null) {
+            stmt.e.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitLoop(LoopStmt stmt) {
+        mix(5);
+        at(stmt);
+        stmt.conditional.accept(this);
+        return stmt.body.accept(this);
+    }
+
+    @Override
+    public Void visitReturn(ReturnStmt stmt) {
+        mix(6);
+        at(stmt);
+        return stmt.expr.accept(this);
+    }
+
+    @Override
+    public Void visitBinary(BinaryExpr expr) {
+        mix(7);
+        at(expr);
+        mix(expr.op.ordinal());
+        expr.left.accept(this);
+        return expr.right.accept(this);
+    }
+
+    @Override
+    public Void visitId(IdExpr expr) {
+        mix(8);
+        at(expr);
+        mix(expr.name);
+        return null;
+    }
+
+    @Override
+    public Void visitIntLiteral(IntLiteral expr) {
+        mix(9);
+        at(expr);
+        mix(expr.value);
+        return null;
+    }
+
+    @Override
+    public Void visitBoolLiteral(BoolLiteral expr) {
+        mix(10);
+        at(expr);
+        mix(expr.value ? 1 : 0);
+        return null;
+    }
+
+    @Override
+    public Void visitFuncCall(FuncCall expr) {
+        mix(11);
+        at(expr);
+        mix(expr.name);
+        mix(expr.args.size());
+        for (Expr arg : expr.args) {
+            arg.accept(this);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,157 @@
+package simple;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// The identifiers of one compilation, interned to dense int ids starting at
+// 0. The lexer interns straight from its buffer, so an identifier costs a
+// String only the first time it is seen; later passes can index arrays by
+// id instead of hashing names. Interning is not thread-safe: a table is
+// filled while parsing and only read after that.
+public class SymbolTable {
+    private String[] names = new String[64];
+    private Integer[] boxes = new Integer[64];
+    private int[] hashes = new int[64];
+    private int size;
+    private int[] buckets = new int[128]; // id + 1, or 0 when empty
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    // The id as the shared Integer handed to the parser, so a token does
+    // not need a fresh box.
+    Integer boxed(int id) {
+        return boxes[id];
+    }
+
+    int intern(char[] buffer, int start, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + buffer[start + i];
+        }
+        int mask = buckets.length - 1;
+        for (int b = spread(hash) & mask; ; b = (b + 1) & mask) {
+            int entry = buckets[b];
+            if (entry == 0) {
+                return add(new String(buffer, start, length), hash, b);
+            }
+            String name = names[entry - 1];
+            if (hashes[entry - 1] == hash && matches(name, buffer, start, length)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    // As above, for ASCII text in a byte buffer.
+    int intern(ByteBuffer buffer, int start, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + buffer.get(start + i);
+        }
+        int mask = buckets.length - 1;
+        for (int b = spread(hash) & mask; ; b = (b + 1) & mask) {
+            int entry = buckets[b];
+            if (entry == 0) {
+                byte[] text = new byte[length];
+                buffer.get(start, text);
+                return add(new String(text, StandardCharsets.US_ASCII), hash, b);
+            }
+            String name = names[entry - 1];
+            if (hashes[entry - 1] == hash && matches(name, buffer, start, length)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    public int intern(String name) {
+        int id = lookup(name);
+        if (id >= 0) {
+            return id;
+        }
+        int hash = name.hashCode();
+        int mask = buckets.length - 1;
+        int b = spread(hash) & mask;
+        while (buckets[b] != 0) {
+            b = (b + 1) & mask;
+        }
+        return add(name, hash, b);
+    }
+
+    // The id of name, or -1 if it has not been interned.
+    public int lookup(String name) {
+        int hash = name.hashCode();
+        int mask = buckets.length - 1;
+        for (int b = spread(hash) & mask; ; b = (b + 1) & mask) {
+            int entry = buckets[b];
+            if (entry == 0) {
+                return -1;
+            }
+            if (hashes[entry - 1] == hash && names[entry - 1].equals(name)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private int add(String name, int hash, int bucket) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            boxes = Arrays.copyOf(boxes, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        names[id] = name;
+        boxes[id] = id;
+        hashes[id] = hash;
+        buckets[bucket] = id + 1;
+        if (size * 2 > buckets.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        buckets = new int[buckets.length * 2];
+        int mask = buckets.length - 1;
+        for (int id = 0; id < size; id++) {
+            int b = spread(hashes[id]) & mask;
+            while (buckets[b] != 0) {
+                b = (b + 1) & mask;
+            }
+            buckets[b] = id + 1;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String name, ByteBuffer buffer, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String name, char[] buffer, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != buffer[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
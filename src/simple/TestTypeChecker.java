@@ -1,43 +1,212 @@
 package simple;
 
-import java.io.FileReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 public class TestTypeChecker {
 
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.err.println("Usage: java simple.TestTypeChecker <path_to_test_file>");
+        CheckerFlags flags = new CheckerFlags();
+        String earlier = null;
+        int i = 0;
+        for (; i < args.length - 1; i++) {
+            if (args[i].startsWith("--recheck=")) {
+                earlier = args[i].substring("--recheck=".length());
+            } else if (!flags.parse(args[i])) {
+                break;
+            }
+        }
+        if (args.length < 1 || i != args.length - 1) {
+            System.err.println("Usage: java simple.TestTypeChecker " + CheckerFlags.USAGE
+                    + " [--recheck=<earlier_test_file>] <path_to_test_file>");
+            System.err.println(CheckerFlags.NOTES);
             System.exit(1);
         }
-        String filePath = args[0];
-        runTest(filePath);
+        if (earlier != null) {
+            recheck(earlier, args[i], flags, System.out);
+            return;
+        }
+        runTest(args[i], flags, flags.openCache(), System.out);
     }
 
-    private static void runTest(String filePath) {
-        System.out.println("--- Running Test Case: " + filePath + " ---");
+    // Checks earlier, then filePath incrementally from earlier's result and
+    // again from scratch, and reports the incremental outcome and whether
+    // it is the same as the scratch one; true if it passed and is. The
+    // cache is not used.
+    static boolean recheck(String earlier, String filePath, CheckerFlags flags, PrintStream out) {
+        out.println("--- Re-checking Test Case: " + filePath + " after " + earlier + " ---");
+        List<CheckResult> results = new ArrayList<>();
+        checkFrom(earlier, flags, null, results);
+        CheckResult previous = results.isEmpty() ? null : results.get(0);
+        results.clear();
+        CachedCheck incremental = checkFrom(filePath, flags, previous, results);
+        CachedCheck scratch = check(filePath, flags, null);
+        ByteArrayOutputStream incrementalReport = new ByteArrayOutputStream();
+        ByteArrayOutputStream scratchReport = new ByteArrayOutputStream();
+        boolean passed = report(incremental, new PrintStream(incrementalReport, true));
+        report(scratch, new PrintStream(scratchReport, true));
+        boolean same = incrementalReport.toString().equals(scratchReport.toString());
+        if (!results.isEmpty()) {
+            CheckResult result = results.get(0);
+            out.println("Reused " + result.reusedComponents() + " of "
+                    + (result.reusedComponents() + result.checkedComponents()) + " call-graph component(s).");
+        }
+        out.println(same ? "Incremental check matches a scratch check."
+                : "Incremental check differs from a scratch check, which gave:");
+        if (!same) {
+            out.print(scratchReport);
+        }
+        out.print(incrementalReport);
+        return passed && same;
+    }
+
+    // Checks one file and prints its report to out; true if it passed.
+    static boolean runTest(String filePath, CheckerFlags flags, SignatureCache cache, PrintStream out) {
+        out.println("--- Running Test Case: " + filePath + " ---");
+        return report(check(filePath, flags, cache), out);
+    }
+
+    // Checks one file. The outcome is also what the cache keeps and what
+    // CheckServer sends back.
+    static CachedCheck check(String filePath, CheckerFlags flags, SignatureCache cache) {
         try {
-            // 1. Create the lexer and parser
-            FileReader reader = new FileReader(filePath);
-            SimpleLexer lexer = new SimpleLexer(reader);
-            parser p = new parser(lexer);
+            ByteBuffer source = MappedLexer.map(Paths.get(filePath));
+
+            // 0. An unchanged file may already have a cached outcome
+            String key = cache == null ? null : cache.key(source, flags.allErrors, flags.descent(), flags.lazy(), flags.options);
+            CachedCheck cached = cache == null ? null : cache.load(key);
+            if (cached != null) {
+                return cached;
+            }
 
-            // 2. Parse the file to get the AST
-            ProgramNode ast = (ProgramNode) p.parse().value;
+            // 1. Create the lexer and parser. ASCII source is scanned in
+            //    place from the mapped file; with --prelex all of it is
+            //    lexed into a TokenStream first. The descent parser always
+            //    reads a TokenStream; in --all-errors mode it reports syntax
+            //    errors and skips them. With --lazy it skims function bodies
+            //    and parses each when the checker first reads it.
+            SymbolTable symbols = new SymbolTable();
+            Diagnostics diagnostics = flags.allErrors ? new Diagnostics() : null;
+            ProgramNode ast = parse(source, flags, symbols, diagnostics);
+            if (diagnostics != null && !diagnostics.isEmpty()) {
+                cache = null; // a partial program's outcome depends on the parser
+            }
             // System.out.println("--- Parsed AST ---");
             // System.out.println(ast.toString(0));
             
-            // 3. Create and run the type checker
-            TypeChecker typeChecker = new TypeChecker();
-            typeChecker.typeCheckProgram(ast);
+            // 3. Create and run the type checker. It checks what parsed;
+            //    its errors follow any syntax errors. With --reachable it
+            //    checks only the functions main can reach.
+            TypeChecker typeChecker = new TypeChecker(diagnostics, flags.options, null);
+            try {
+                typeChecker.typeCheckProgram(ast);
+            } catch (Exception e) {
+                if (cache != null && e.getMessage() != null) {
+                    store(cache, key, CachedCheck.threw(e.getMessage()));
+                }
+                throw e;
+            }
 
-            // 4. If we reach here, no exception was thrown.
-            System.out.println("Result: PASS - Program is well-typed.");
+            // 4. If we reach here, no exception was thrown. In --all-errors
+            //    mode the errors are in the sink instead.
+            CachedCheck outcome = outcome(typeChecker, diagnostics);
+            if (cache != null) {
+                store(cache, key, outcome);
+            }
+            return outcome;
 
         } catch (Exception e) {
             // An exception means the type checker found an error.
-            System.out.println("Result: FAIL - Type checker threw an exception.");
-            System.out.println("Error Message: " + e.getMessage());
+            return CachedCheck.threw(String.valueOf(e.getMessage()));
+        }
+    }
+
+    // Checks one file incrementally from previous (null for none), adding
+    // the result for the next check to results if the check returned.
+    private static CachedCheck checkFrom(String filePath, CheckerFlags flags, CheckResult previous,
+                                         List<CheckResult> results) {
+        try {
+            SymbolTable symbols = new SymbolTable();
+            Diagnostics diagnostics = flags.allErrors ? new Diagnostics() : null;
+            ProgramNode ast = parse(MappedLexer.map(Paths.get(filePath)), flags, symbols, diagnostics);
+            TypeChecker typeChecker = new TypeChecker(diagnostics, flags.options, null);
+            results.add(typeChecker.typeCheckProgram(ast, previous));
+            return outcome(typeChecker, diagnostics);
+        } catch (Exception e) {
+            return CachedCheck.threw(String.valueOf(e.getMessage()));
+        }
+    }
+
+    private static ProgramNode parse(ByteBuffer source, CheckerFlags flags, SymbolTable symbols,
+                                     Diagnostics diagnostics) throws Exception {
+        if (flags.descent()) {
+            return new DescentParser(TokenStream.lex(source, symbols), diagnostics).lazy(flags.lazy()).parse();
+        }
+        TokenSource lexer = flags.prelex
+                ? TokenStream.lex(source, symbols).reader()
+                : MappedLexer.lexerFor(source, symbols);
+        parser p = new parser(lexer);
+
+        // 2. Parse the file to get the AST
+        return (ProgramNode) p.parse().value;
+    }
+
+    // The outcome of a check that returned.
+    private static CachedCheck outcome(TypeChecker typeChecker, Diagnostics diagnostics) {
+        List<Diagnostic> errors = diagnostics == null || diagnostics.isEmpty() ? null : diagnostics.all();
+        List<String> skipped = typeChecker.skipped();
+        return errors == null
+                ? CachedCheck.passed(typeChecker.environment(), skipped)
+                : CachedCheck.diagnosed(errors, skipped);
+    }
+
+    // A cache that cannot be written only costs the next run time; the
+    // outcome stands either way.
+    private static void store(SignatureCache cache, String key, CachedCheck outcome) {
+        try {
+            cache.store(key, outcome);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Cache write failed: " + e);
+        }
+    }
+
+    // Prints an outcome the way a check reports it; true if it passed.
+    static boolean report(CachedCheck outcome, PrintStream out) {
+        if (outcome.thrown != null) {
+            out.println("Result: FAIL - Type checker threw an exception.");
+            out.println("Error Message: " + outcome.thrown);
+        } else {
+            if (outcome.globals != null) {
+                out.println(outcome.globals.toString());
+            }
+            printSkipped(out, outcome.skipped);
+            printOutcome(out, outcome.diagnostics);
+        }
+        out.println("---------------------------------------\n");
+        return outcome.thrown == null && outcome.diagnostics == null;
+    }
+
+    // With --reachable: the functions that were not checked.
+    private static void printSkipped(PrintStream out, List<String> skipped) {
+        if (!skipped.isEmpty()) {
+            out.println("Skipped " + skipped.size() + " function(s) not reachable from main: "
+                    + String.join(", ", skipped));
+        }
+    }
+
+    private static void printOutcome(PrintStream out, List<Diagnostic> errors) {
+        if (errors != null) {
+            out.println("Result: FAIL - Type checker found " + errors.size() + " error(s).");
+            for (Diagnostic d : errors) {
+                out.println("Error Message: " + d);
+            }
+        } else {
+            out.println("Result: PASS - Program is well-typed.");
         }
-        System.out.println("---------------------------------------\n");
     }
 }
@@ -0,0 +1,9 @@
+package simple;
+
+import java_cup.runtime.Scanner;
+
+// A scanner the parser can read identifier names back from: IDENTIFIER
+// tokens carry ids in symbols().
+public interface TokenSource extends Scanner {
+    SymbolTable symbols();
+}
@@ -0,0 +1,139 @@
+package simple;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java_cup.runtime.Scanner;
+import java_cup.runtime.Symbol;
+
+// A whole file's tokens, lexed up front into parallel primitive arrays:
+// kind (a sym constant), start offset, length, line, column and value (the
+// int of an INTEGER_LIT, the symbol id of an IDENTIFIER). Lexing allocates
+// only the arrays as they grow. The last token is EOF, or FAILED when the
+// lexer threw; the error is kept and rethrown when a reader reaches that
+// token, so errors surface in the same order as with a streaming lexer.
+//
+// Offsets and lengths are in bytes for ASCII source. A stream recorded from
+// another Scanner has no offsets; start and length are -1 there.
+class TokenStream {
+    static final int FAILED = -1;
+
+    final SymbolTable symbols;
+    int[] kind;
+    int[] start;
+    int[] length;
+    int[] line;
+    int[] column;
+    int[] value;
+    int size;
+    RuntimeException failure; // thrown by the lexer at the FAILED token
+
+    private TokenStream(SymbolTable symbols, int capacity) {
+        this.symbols = symbols;
+        kind = new int[capacity];
+        start = new int[capacity];
+        length = new int[capacity];
+        line = new int[capacity];
+        column = new int[capacity];
+        value = new int[capacity];
+    }
+
+    // Lexes source with the mapped lexer if it is pure ASCII, otherwise
+    // records the tokens of the SimpleLexer fallback.
+    static TokenStream lex(ByteBuffer source, SymbolTable symbols) {
+        TokenSource lexer = MappedLexer.lexerFor(source, symbols);
+        if (lexer instanceof MappedLexer) {
+            return lex((MappedLexer) lexer, symbols, Math.min(source.remaining() / 4, 1 << 20) + 16);
+        }
+        return record(lexer, symbols);
+    }
+
+    private static TokenStream lex(MappedLexer lexer, SymbolTable symbols, int capacity) {
+        TokenStream tokens = new TokenStream(symbols, capacity);
+        while (true) {
+            int k;
+            try {
+                k = lexer.scan();
+            } catch (RuntimeException e) {
+                tokens.fail(e, lexer.tokenLine, lexer.tokenColumn);
+                return tokens;
+            }
+            tokens.add(k, lexer.tokenStart, lexer.position() - lexer.tokenStart,
+                    lexer.tokenLine, lexer.tokenColumn, lexer.tokenValue);
+            if (k == sym.EOF) {
+                return tokens;
+            }
+        }
+    }
+
+    private static TokenStream record(Scanner scanner, SymbolTable symbols) {
+        TokenStream tokens = new TokenStream(symbols, 1024);
+        while (true) {
+            Symbol s;
+            try {
+                s = scanner.next_token();
+            } catch (Exception e) {
+                tokens.fail(e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e), -1, -1);
+                return tokens;
+            }
+            int v = s.value instanceof Integer ? (Integer) s.value : 0;
+            tokens.add(s.sym, -1, -1, s.left, s.right, v);
+            if (s.sym == sym.EOF) {
+                return tokens;
+            }
+        }
+    }
+
+    private void fail(RuntimeException e, int atLine, int atColumn) {
+        failure = e;
+        add(FAILED, -1, -1, atLine, atColumn, 0);
+    }
+
+    private void add(int k, int offset, int len, int ln, int col, int v) {
+        if (size == kind.length) {
+            int capacity = size * 2;
+            kind = Arrays.copyOf(kind, capacity);
+            start = Arrays.copyOf(start, capacity);
+            length = Arrays.copyOf(length, capacity);
+            line = Arrays.copyOf(line, capacity);
+            column = Arrays.copyOf(column, capacity);
+            value = Arrays.copyOf(value, capacity);
+        }
+        kind[size] = k;
+        start[size] = offset;
+        length[size] = len;
+        line[size] = ln;
+        column[size] = col;
+        value[size] = v;
+        size++;
+    }
+
+    // Feeds the stream to a Symbol-based parser such as the CUP one. Only
+    // the Symbols the parser asks for are allocated, one at a time.
+    TokenSource reader() {
+        return new TokenSource() {
+            private int next;
+
+            @Override
+            public SymbolTable symbols() {
+                return symbols;
+            }
+
+            @Override
+            public Symbol next_token() {
+                int i = Math.min(next++, size - 1);
+                switch (kind[i]) {
+                    case FAILED:
+                        throw failure;
+                    case sym.EOF:
+                        return new Symbol(sym.EOF);
+                    case sym.IDENTIFIER:
+                        return new Symbol(sym.IDENTIFIER, line[i], column[i], symbols.boxed(value[i]));
+                    case sym.INTEGER_LIT:
+                        return new Symbol(sym.INTEGER_LIT, line[i], column[i], value[i]);
+                    default:
+                        return new Symbol(kind[i], line[i], column[i]);
+                }
+            }
+        };
+    }
+}
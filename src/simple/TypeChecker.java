@@ -1,143 +1,521 @@
 package simple;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
+// Checks one program at a time; use a TypeChecker per thread to run checks
+// concurrently. There is no static mutable state.
 public class TypeChecker {
-    private TypeEnvironment typeEnv; //Symbol table
-    private static final TypeConst INT_TYPE = new TypeConst(Type.INTEGER);
-    private static final TypeConst BOOL_TYPE = new TypeConst(Type.BOOLEAN);
-    private TypeExpr currentFunctionReturnType;
+    private static final TypeConst INT_TYPE = TypeConst.of(Type.INTEGER);
+    private static final TypeConst BOOL_TYPE = TypeConst.of(Type.BOOLEAN);
+    private CheckSession session; //State of the check in progress
+    // Where errors go. When null the checker stops at the first error by
+    // throwing; otherwise it records every error and keeps going.
+    private final Diagnostics diagnostics;
+    private final CheckOptions options;
+    private final PrintStream out; // where the bindings of a passing check go, if anywhere
+    private List<String> skipped = new ArrayList<>(); // by the last check
+
+    public TypeChecker() {
+        this(null);
+    }
+
+    public TypeChecker(Diagnostics diagnostics) {
+        this(diagnostics, new CheckOptions());
+    }
+
+    public TypeChecker(Diagnostics diagnostics, CheckOptions options) {
+        this(diagnostics, options, System.out);
+    }
+
+    public TypeChecker(Diagnostics diagnostics, CheckOptions options, PrintStream out) {
+        this.diagnostics = diagnostics;
+        this.options = options;
+        this.out = out;
+    }
 
     public void typeCheckProgram(ProgramNode program) throws Exception {
-        this.typeEnv = new TypeEnvironment();
+        if (options.parallelism > 1) {
+            typeCheckProgram(program, null);
+            return;
+        }
+        program = reset(program);
 
+        List<FuncType> signatures = new ArrayList<>();
         for (FuncDef funcDef : program.fns) {
-            registerFunctionSignature(funcDef);
+            signatures.add(registerFunctionSignature(funcDef));
         }
 
-        for (FuncDef funcDef : program.fns) {
-            checkFuncDef(funcDef);
+        if (options.twoPhase) {
+            solveInTwoPhases(program, signatures);
+        } else {
+            for (int i = 0; i < program.fns.size(); i++) {
+                checkFuncDef(program.fns.get(i), signatures.get(i));
+            }
+
+            session.currentFunctionReturnType = null; // No return statements allowed in main
+            for(VarDecl decl : program.globals){
+                declareGlobal(decl.symbol, decl.slot, declaredType(decl));
+            }
+            for (Stmt stmt : program.main) {
+                checkStmt(stmt);
+            }
         }
+        printGlobals();
+    }
+
+    // Incremental checking. Checks program one call-graph component at a time
+    // (concurrently when parallelism > 1), taking unchanged components from
+    // previous instead of checking them again. A component is unchanged when
+    // it has the same functions, in the same order, with the same structural
+    // hashes. previous may be null; the returned result feeds the next call.
+    public CheckResult typeCheckProgram(ProgramNode program, CheckResult previous) throws Exception {
+        program = reset(program);
+        CheckResult result = checkByComponent(program, previous);
+        printGlobals();
+        return result;
+    }
 
-        this.currentFunctionReturnType = null; // No return statements allowed in main
-        for(VarDecl decl : program.globals){
-            checkStmt(decl);
+    // Bindings left by the last check; the global scope holds the results.
+    TypeEnvironment environment() {
+        return session.typeEnv;
+    }
+
+    // Functions the last check left out as unreachable from main, in
+    // program order. Always empty unless options.reachableOnly is set.
+    public List<String> skipped() {
+        return skipped;
+    }
+
+    // Starts a new session and resolves the names of the program that is
+    // to be checked, which it returns. Resolution errors are reported
+    // before any inference.
+    private ProgramNode reset(ProgramNode program) throws Exception {
+        program = demanded(program);
+        this.session = new CheckSession(program.symbols);
+        session.resolution = Resolver.resolve(program, options.persistentScopes);
+        session.types = new TypeExpr[session.resolution.slotCount];
+        for (Diagnostic error : session.resolution.errors) {
+            if (diagnostics == null) {
+                throw new Exception(error.message);
+            }
+            diagnostics.report(error);
         }
-        for (Stmt stmt : program.main) {
-            checkStmt(stmt);
+        return program;
+    }
+
+    // With options.reachableOnly, program without the functions main cannot
+    // reach. Nothing in them is resolved or inferred, so their errors go
+    // unreported; their names are kept in skipped.
+    private ProgramNode demanded(ProgramNode program) {
+        skipped = new ArrayList<>();
+        if (!options.reachableOnly) {
+            return program;
+        }
+        boolean[] reachable = CallGraph.reachableFromMain(program);
+        List<FuncDef> fns = new ArrayList<>();
+        for (int f = 0; f < reachable.length; f++) {
+            if (reachable[f]) {
+                fns.add(program.fns.get(f));
+            } else {
+                skipped.add(program.fns.get(f).name);
+            }
         }
-        System.out.println(typeEnv.toString());
+        return skipped.isEmpty() ? program : new ProgramNode(fns, program.globals, program.main, program.symbols);
     }
 
+    private void printGlobals() {
+        if (out != null && (diagnostics == null || diagnostics.isEmpty())) {
+            out.println(session.typeEnv.toString());
+        }
+    }
 
-    private void registerFunctionSignature(FuncDef funcDef) throws Exception {
+    private FuncType registerFunctionSignature(FuncDef funcDef) throws Exception {
         List<TypeExpr> paramTypes = new ArrayList<>();
         for (VarDecl param : funcDef.params) {
             if (param.type == null) { // Implicitly typed param: var x
-                paramTypes.add(new TypeVar());
+                paramTypes.add(session.freshVar());
             } else { // Explicitly typed param: int x
                 paramTypes.add(typeFromAst(param.type));
             }
         }
-        TypeVar returnType = new TypeVar();
-        FuncType funcType = new FuncType(returnType, paramTypes);
-        typeEnv.declare(funcDef.name, funcType);
+        TypeVar returnType = session.freshVar();
+        FuncType funcType = session.store.funcType(returnType, paramTypes);
+        declareGlobal(funcDef.symbol, funcDef.slot, funcType);
+        return funcType;
     }
 
 
 
-    private void checkFuncDef(FuncDef funcDef) throws Exception {
-        FuncType funcType = (FuncType) typeEnv.lookup(funcDef.name).find();
+    // Two-phase mode: constraints for every function and for main are
+    // generated up front, then solved in program order.
+    private void solveInTwoPhases(ProgramNode program, List<FuncType> signatures) throws Exception {
+        ConstraintGenerator generator = newGenerator(new int[session.types.length]);
+        List<ConstraintSet> units = new ArrayList<>();
+        for (int i = 0; i < program.fns.size(); i++) {
+            units.add(generator.function(program.fns.get(i), signatures.get(i)));
+        }
+        ConstraintSet main = generator.main(program.globals, program.main);
+        units.add(main);
+
+        ConstraintSolver solver = new ConstraintSolver(session.store, session.unifier, diagnostics);
+        for (ConstraintSet unit : units) {
+            solver.prepare(unit);
+        }
+        for (ConstraintSet unit : units) {
+            solver.solve(unit);
+        }
+        for (int i = 0; i < main.globalDecls.size(); i++) {
+            session.typeEnv.declare(main.globalDecls.get(i).symbol, solver.materialize(main, main.globalTerms.get(i)));
+        }
+    }
+
+    // Component mode: two-phase checking where each weakly connected component
+    // of the call graph is generated and solved on its own, concurrently when
+    // parallelism > 1. Components share no type variables; variables are
+    // still allocated in program order and errors merged back in program
+    // order, so the outcome is the same as solveInTwoPhases.
+    private CheckResult checkByComponent(ProgramNode program, CheckResult previous) throws Exception {
+        int n = program.fns.size();
+        CallGraph graph = new CallGraph(program.fns);
+        List<List<Integer>> components = graph.components();
+        long[] hashes = new long[n];
+        for (int f = 0; f < n; f++) {
+            hashes[f] = StructuralHash.of(program.fns.get(f));
+        }
+        int count = components.size();
+        int[] memberIndex = new int[n];
+        for (List<Integer> members : components) {
+            for (int m = 0; m < members.size(); m++) {
+                memberIndex[members.get(m)] = m;
+            }
+        }
+        ComponentSummary[] summaries = new ComponentSummary[count];
+        boolean[] reused = new boolean[count];
+        int reusedCount = 0;
+        for (int c = 0; c < count && previous != null; c++) {
+            List<Integer> members = components.get(c);
+            summaries[c] = previous.find(memberNames(program, members), memberHashes(hashes, members), diagnostics != null);
+            if (summaries[c] != null) {
+                reused[c] = true;
+                reusedCount++;
+            }
+        }
 
-        this.currentFunctionReturnType = funcType.returnType;
+        // Signatures in program order, reused components' included, so that
+        // every function's variables get the ids a fresh check would give.
+        FuncType[] signatures = new FuncType[n];
+        int[] signatureStart = new int[n + 1];
+        for (int f = 0; f < n; f++) {
+            signatureStart[f] = session.store.size();
+            signatures[f] = registerFunctionSignature(program.fns.get(f));
+        }
+        signatureStart[n] = session.store.size();
+        int[] unitStart = new int[n + 1];
+
+        ConstraintSet[] units = new ConstraintSet[n];
+        Diagnostics[] found = new Diagnostics[n];
+        String[] failed = new String[n];
+        int[] terms = new int[session.types.length];
+        ForkJoinPool pool = options.parallelism > 1 ? new ForkJoinPool(options.parallelism) : null;
+        try {
+            List<Callable<Void>> generate = new ArrayList<>();
+            for (int c = 0; c < count; c++) {
+                if (reused[c]) {
+                    continue;
+                }
+                List<Integer> members = components.get(c);
+                generate.add(() -> {
+                    ConstraintGenerator generator = newGenerator(terms);
+                    for (int f : members) {
+                        units[f] = generator.function(program.fns.get(f), signatures[f]);
+                    }
+                    return null;
+                });
+            }
+            runAll(pool, generate);
+
+            ConstraintSet main = newGenerator(terms).main(program.globals, program.main);
+            ConstraintSolver solver = new ConstraintSolver(session.store, session.unifier, diagnostics);
+            for (int f = 0; f < n; f++) {
+                unitStart[f] = session.store.size();
+                int c = graph.component[f];
+                if (!reused[c]) {
+                    solver.prepare(units[f]);
+                    continue;
+                }
+                for (int i = summaries[c].unitVars(memberIndex[f]); i > 0; i--) {
+                    new TypeVar(session.store);
+                }
+            }
+            unitStart[n] = session.store.size();
+            solver.prepare(main);
+            for (int c = 0; c < count; c++) {
+                if (reused[c]) {
+                    summaries[c].instantiate(session.store, componentVars(components.get(c), signatureStart, unitStart));
+                }
+            }
+
+            List<Callable<Void>> solve = new ArrayList<>();
+            for (int c = 0; c < count; c++) {
+                if (reused[c]) {
+                    continue;
+                }
+                List<Integer> members = components.get(c);
+                solve.add(() -> {
+                    // Solve-time function types may be ground, so each
+                    // component interns them in a table of its own.
+                    Unifier local = new Unifier(session.store);
+                    TypeInterner interner = new TypeInterner();
+                    for (int f : members) {
+                        found[f] = diagnostics == null ? null : new Diagnostics();
+                        try {
+                            new ConstraintSolver(session.store, local, found[f], interner).solve(units[f]);
+                        } catch (Exception e) {
+                            failed[f] = e.getMessage();
+                            return null;
+                        }
+                    }
+                    return null;
+                });
+            }
+            runAll(pool, solve);
+
+            // Summaries must be taken before main binds any signature variables.
+            for (int c = 0; c < count; c++) {
+                if (!reused[c]) {
+                    summaries[c] = summarize(program, components.get(c), hashes, signatureStart, unitStart, found, failed);
+                }
+            }
+            for (int f = 0; f < n; f++) {
+                int c = graph.component[f];
+                String failure = failed[f];
+                List<Diagnostic> errors = found[f] == null ? null : found[f].all();
+                if (reused[c]) {
+                    int[] ids = componentVars(components.get(c), signatureStart, unitStart);
+                    failure = summaries[c].failure(memberIndex[f], ids);
+                    errors = diagnostics == null ? null
+                            : summaries[c].diagnostics(memberIndex[f], StructuralHash.baseLine(program.fns.get(f)), ids);
+                }
+                if (failure != null) {
+                    throw new Exception(failure);
+                }
+                if (errors != null) {
+                    for (Diagnostic d : errors) {
+                        diagnostics.report(d);
+                    }
+                }
+            }
+            solver.solve(main);
+            for (int i = 0; i < main.globalDecls.size(); i++) {
+                session.typeEnv.declare(main.globalDecls.get(i).symbol, solver.materialize(main, main.globalTerms.get(i)));
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        return new CheckResult(Arrays.asList(summaries), reusedCount);
+    }
+
+    private ComponentSummary summarize(ProgramNode program, List<Integer> members, long[] hashes,
+                                       int[] signatureStart, int[] unitStart, Diagnostics[] found, String[] failed) {
+        int[] signatureVars = new int[members.size()];
+        int[] unitVars = new int[members.size()];
+        List<List<Diagnostic>> errors = diagnostics == null ? null : new ArrayList<>();
+        String[] failures = new String[members.size()];
+        for (int m = 0; m < members.size(); m++) {
+            int f = members.get(m);
+            signatureVars[m] = signatureStart[f + 1] - signatureStart[f];
+            unitVars[m] = unitStart[f + 1] - unitStart[f];
+            failures[m] = failed[f];
+            if (errors != null) {
+                // Kept relative to the function's line, as its hash is.
+                List<Diagnostic> relative = new ArrayList<>();
+                if (found[f] != null) {
+                    int base = StructuralHash.baseLine(program.fns.get(f));
+                    for (Diagnostic d : found[f].all()) {
+                        relative.add(d.shifted(-base));
+                    }
+                }
+                errors.add(relative);
+            }
+        }
+        return new ComponentSummary(memberNames(program, members), memberHashes(hashes, members), signatureVars,
+                unitVars, session.store, componentVars(members, signatureStart, unitStart), errors, failures);
+    }
+
+    // Ids of a component's variables: each member's signature variables,
+    // then its unit's, member by member (see ComponentSummary).
+    private static int[] componentVars(List<Integer> members, int[] signatureStart, int[] unitStart) {
+        int total = 0;
+        for (int f : members) {
+            total += signatureStart[f + 1] - signatureStart[f] + unitStart[f + 1] - unitStart[f];
+        }
+        int[] ids = new int[total];
+        int k = 0;
+        for (int f : members) {
+            for (int id = signatureStart[f]; id < signatureStart[f + 1]; id++) {
+                ids[k++] = id;
+            }
+            for (int id = unitStart[f]; id < unitStart[f + 1]; id++) {
+                ids[k++] = id;
+            }
+        }
+        return ids;
+    }
+
+    private static String[] memberNames(ProgramNode program, List<Integer> members) {
+        String[] names = new String[members.size()];
+        for (int m = 0; m < names.length; m++) {
+            names[m] = program.fns.get(members.get(m)).name;
+        }
+        return names;
+    }
+
+    private static long[] memberHashes(long[] hashes, List<Integer> members) {
+        long[] result = new long[members.size()];
+        for (int m = 0; m < result.length; m++) {
+            result[m] = hashes[members.get(m)];
+        }
+        return result;
+    }
+
+    // Generators of one check share terms: each slot belongs to one unit.
+    private ConstraintGenerator newGenerator(int[] terms) {
+        return new ConstraintGenerator(session.types, session.resolution.functionSlots, terms);
+    }
+
+    // Runs tasks on pool, or one after another on this thread if there is none.
+    private static void runAll(ForkJoinPool pool, List<Callable<Void>> tasks) throws Exception {
+        if (pool == null) {
+            for (Callable<Void> task : tasks) {
+                task.call();
+            }
+            return;
+        }
+        for (Future<Void> done : pool.invokeAll(tasks)) {
+            done.get();
+        }
+    }
+
+    private void checkFuncDef(FuncDef funcDef, FuncType funcType) throws Exception {
+        session.currentFunctionReturnType = funcType.returnType;
+        session.currentFunction = funcDef.name;
 
-        typeEnv.enterScope();
         try {
             for (int i = 0; i < funcDef.params.size(); i++) {
                 VarDecl param = funcDef.params.get(i);
                 TypeExpr paramType = funcType.paramTypes.get(i);
-                typeEnv.declare(param.name, paramType);
+                bind(param.slot, paramType);
             }
-            checkStmt(funcDef.body);
+            checkStmt(funcDef.body());
         } finally {
-            //exit scope, no longer expecting return statements
-            typeEnv.exitScope();
-            currentFunctionReturnType = null;
+            //no longer expecting return statements
+            session.currentFunctionReturnType = null;
+            session.currentFunction = null;
         }
     }
 
     private void checkStmt(Stmt stmt) throws Exception {
-        if (stmt instanceof VarDecl) {
-            VarDecl decl = (VarDecl) stmt;
-            TypeExpr declaredType;
-            if (decl.type == null) { // var x;
-                declaredType = new TypeVar();
-            } else { // int x;
-                declaredType = typeFromAst(decl.type);
-            }
-            typeEnv.declare(decl.name, declaredType);
-        } else if (stmt instanceof AssignStmt) {
-            AssignStmt assign = (AssignStmt) stmt;
-            TypeExpr varType = typeEnv.lookup(assign.id);
+        stmt.accept(stmtChecker);
+    }
+
+    private TypeExpr checkExpr(Expr expr) throws Exception {
+        return expr.accept(exprChecker);
+    }
+
+    private final StmtVisitor<Void, Exception> stmtChecker = new StmtVisitor<>() {
+        @Override
+        public Void visitVarDecl(VarDecl decl) {
+            bind(decl.slot, declaredType(decl));
+            return null;
+        }
+
+        @Override
+        public Void visitAssign(AssignStmt assign) throws Exception {
+            TypeExpr varType = lookup(assign.slot);
             TypeExpr exprType = checkExpr(assign.expr);
-            unify(varType, exprType);
-        } else if (stmt instanceof BlockStmt) {
-            BlockStmt block = (BlockStmt) stmt;
-            typeEnv.enterScope();
-            try {
-                for (VarDecl decl : block.declarations) {
-                    checkStmt(decl);
-                }
-                for (Stmt s : block.statements) {
-                    checkStmt(s);
-                }
-            } finally {
-                typeEnv.exitScope();
+            unify(varType, exprType, assign);
+            return null;
+        }
+
+        @Override
+        public Void visitBlock(BlockStmt block) throws Exception {
+            for (VarDecl decl : block.declarations) {
+                checkStmt(decl);
             }
-        } else if (stmt instanceof IfStmt) {
-            IfStmt ifStmt = (IfStmt) stmt;
+            for (Stmt s : block.statements) {
+                checkStmt(s);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitIf(IfStmt ifStmt) throws Exception {
             TypeExpr conditionType = checkExpr(ifStmt.conditional);
-            unify(conditionType, BOOL_TYPE);
+            unify(conditionType, BOOL_TYPE, ifStmt.conditional);
             checkStmt(ifStmt.t);
             if (ifStmt.e != null) {
                 checkStmt(ifStmt.e);
             }
-        } else if (stmt instanceof LoopStmt) {
-            LoopStmt loop = (LoopStmt) stmt;
+            return null;
+        }
+
+        @Override
+        public Void visitLoop(LoopStmt loop) throws Exception {
             TypeExpr conditionType = checkExpr(loop.conditional);
-            unify(conditionType, BOOL_TYPE);
+            unify(conditionType, BOOL_TYPE, loop.conditional);
             checkStmt(loop.body);
-        } else if (stmt instanceof ReturnStmt) {
-            ReturnStmt ret = (ReturnStmt) stmt;
-            if (currentFunctionReturnType == null) {
-                throw new Exception("Return statement found outside of a function body.");
+            return null;
+        }
+
+        @Override
+        public Void visitReturn(ReturnStmt ret) throws Exception {
+            if (session.currentFunctionReturnType == null) {
+                report("Return statement found outside of a function body.", ret);
+                checkExpr(ret.expr);
+                return null;
             }
             TypeExpr returnExprType = checkExpr(ret.expr);
-            unify(returnExprType, currentFunctionReturnType);
+            unify(returnExprType, session.currentFunctionReturnType, ret);
+            return null;
         }
-    }
+    };
 
-    private TypeExpr checkExpr(Expr expr) throws Exception {
-        TypeExpr resultType;
-        if (expr instanceof IntLiteral) {
-            resultType = INT_TYPE;
-        } else if (expr instanceof BoolLiteral) {
-            resultType = BOOL_TYPE;
-        } else if (expr instanceof IdExpr) {
-            resultType = typeEnv.lookup(((IdExpr) expr).name);
-        } else if (expr instanceof BinaryExpr) {
-            resultType = checkBinaryExpr((BinaryExpr) expr);
-        } else if (expr instanceof FuncCall) {
-            resultType = checkFuncCall((FuncCall) expr);
-        } else {
-            throw new Exception("Unhandled expression type in type checker.");
+    private final ExprVisitor<TypeExpr, Exception> exprChecker = new ExprVisitor<>() {
+        @Override
+        public TypeExpr visitIntLiteral(IntLiteral expr) {
+            return INT_TYPE;
         }
 
-        return resultType;
-    }
+        @Override
+        public TypeExpr visitBoolLiteral(BoolLiteral expr) {
+            return BOOL_TYPE;
+        }
+
+        @Override
+        public TypeExpr visitId(IdExpr expr) throws Exception {
+            return lookup(expr.slot);
+        }
+
+        @Override
+        public TypeExpr visitBinary(BinaryExpr expr) throws Exception {
+            return checkBinaryExpr(expr);
+        }
+
+        @Override
+        public TypeExpr visitFuncCall(FuncCall expr) throws Exception {
+            return checkFuncCall(expr);
+        }
+    };
 
     private TypeExpr checkBinaryExpr(BinaryExpr expr) throws Exception {
         TypeExpr leftType = checkExpr(expr.left);
@@ -147,21 +525,21 @@ public class TypeChecker {
             case SUB:
             case MUL:
             case DIV:
-                unify(leftType, INT_TYPE);
-                unify(rightType, INT_TYPE);
+                unify(leftType, INT_TYPE, expr);
+                unify(rightType, INT_TYPE, expr);
                 return INT_TYPE;
             case LT:
             case GT:
-                unify(leftType, INT_TYPE);
-                unify(rightType, INT_TYPE);
+                unify(leftType, INT_TYPE, expr);
+                unify(rightType, INT_TYPE, expr);
                 return BOOL_TYPE;
             case AND:
             case OR:
-                unify(leftType, BOOL_TYPE);
-                unify(rightType, BOOL_TYPE);
+                unify(leftType, BOOL_TYPE, expr);
+                unify(rightType, BOOL_TYPE, expr);
                 return BOOL_TYPE;
             case EQ:
-                unify(leftType, rightType); 
+                unify(leftType, rightType, expr);
                 return BOOL_TYPE;
             default:
                 throw new Exception("Unknown binary operator.");
@@ -169,7 +547,7 @@ public class TypeChecker {
     }
 
     private TypeExpr checkFuncCall(FuncCall call) throws Exception {
-        TypeExpr funcTypeRaw = typeEnv.lookup(call.name);
+        TypeExpr funcTypeRaw = lookup(call.slot);
         TypeExpr funcTypeRep = funcTypeRaw.find();
 
         if (funcTypeRep instanceof TypeVar) {
@@ -177,65 +555,89 @@ public class TypeChecker {
             for (Expr arg : call.args) {
                 argTypes.add(checkExpr(arg));
             }
-            TypeVar returnType = new TypeVar();
-            FuncType inferredType = new FuncType(returnType, argTypes);
-            unify(funcTypeRaw, inferredType);
+            TypeVar returnType = session.freshVar();
+            FuncType inferredType = session.store.funcType(returnType, argTypes);
+            unify(funcTypeRaw, inferredType, call);
             return returnType;
         } else if (funcTypeRep instanceof FuncType) {
             FuncType funcType = (FuncType) funcTypeRep;
             if (call.args.size() != funcType.paramTypes.size()) {
-                throw new Exception("Function arity mismatch: " + call.name);
+                report("Function arity mismatch: " + call.name, call);
+                for (Expr arg : call.args) {
+                    checkExpr(arg);
+                }
+                reserveResultVar(funcTypeRaw);
+                return ErrorType.INSTANCE;
             }
             for (int i = 0; i < call.args.size(); i++) {
                 TypeExpr argType = checkExpr(call.args.get(i));
                 TypeExpr paramType = funcType.paramTypes.get(i);
-                unify(argType, paramType);
+                unify(argType, paramType, call.args.get(i));
             }
+            reserveResultVar(funcTypeRaw);
             return funcType.returnType;
         } else {
-            throw new Exception("'" + call.name + "' is not a function.");
+            if (funcTypeRep != ErrorType.INSTANCE) {
+                report("'" + call.name + "' is not a function.", call);
+            }
+            for (Expr arg : call.args) {
+                checkExpr(arg);
+            }
+            reserveResultVar(funcTypeRaw);
+            return ErrorType.INSTANCE;
         }
     }
 
-    void unify(TypeExpr t1, TypeExpr t2) throws Exception{
-        TypeExpr rep1 = t1.find(), rep2 = t2.find();
-        if(rep1 == rep2){
-            //same type
-            return;
-        }
-        if(rep1 instanceof TypeVar){
-            ((TypeVar)rep1).instance = rep2;
-            return;
+    // A call through a variable takes a result variable whatever the
+    // variable turns out to hold, as it does in two-phase checking, which
+    // only finds that out when it solves; so both number variables alike.
+    private void reserveResultVar(TypeExpr callee) {
+        if (callee instanceof TypeVar) {
+            session.freshVar();
         }
-        if(rep2 instanceof TypeVar){
-            ((TypeVar)rep2).instance = rep1;
-            return;
+    }
+
+    void unify(TypeExpr t1, TypeExpr t2, AstNode node) throws Exception{
+        String error = session.unifier.tryUnify(t1, t2);
+        if (error != null) {
+            report(error, node);
         }
-        if(rep1 instanceof TypeConst && rep2 instanceof TypeConst){
-            if(!rep1.equals(rep2) ){
-                throw new Exception("Type Mismatch: " + rep1.toString() + " " + rep2.toString());
-            }
-            return;
+    }
+
+    // Slot -1 is a name the Resolver could not resolve; it already said so.
+    private TypeExpr lookup(int slot) {
+        return slot < 0 ? ErrorType.INSTANCE : session.types[slot];
+    }
+
+    private void bind(int slot, TypeExpr type) {
+        if (slot >= 0) {
+            session.types[slot] = type;
         }
-        if (rep1 instanceof FuncType && rep2 instanceof FuncType) {
-            FuncType f1 = (FuncType) rep1;
-            FuncType f2 = (FuncType) rep2;
+    }
 
-            // Check for the same number of parameters.
-            if (f1.paramTypes.size() != f2.paramTypes.size()) {
-                throw new Exception("Function arity mismatch: Cannot unify " + f1 + " with " + f2);
-            }
-            //unify return types
-            unify(f1.returnType, f2.returnType);
+    // Functions and globals also go into the environment, which is what
+    // gets printed (and cached) once the check is done.
+    private void declareGlobal(int symbol, int slot, TypeExpr type) {
+        if (slot >= 0) {
+            session.types[slot] = type;
+            session.typeEnv.declare(symbol, type);
+        }
+    }
 
-            //unify each parameter type.
-            for (int i = 0; i < f1.paramTypes.size(); i++) {
-                unify(f1.paramTypes.get(i), f2.paramTypes.get(i));
-            }
-            return;
+    private TypeExpr declaredType(VarDecl decl) {
+        if (decl.type == null) { // var x;
+            return session.freshVar();
         }
-        throw new Exception("Type Mismatch: " + rep1.toString() + " " + rep2.toString());
+        return typeFromAst(decl.type); // int x;
+    }
 
+    // Fails fast by throwing, or records the error at node and lets the
+    // caller recover.
+    private void report(String message, AstNode node) throws Exception {
+        if (diagnostics == null) {
+            throw new Exception(message);
+        }
+        diagnostics.report(new Diagnostic(message, session.currentFunction, node.position()));
     }
 
     private TypeConst typeFromAst(Type astType){
@@ -0,0 +1,69 @@
+package simple;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Copies resolved types into another TypeStore. Unbound variables become
+// fresh variables of the target store, or the variables rename picks; one
+// copier maps each source class to a single target variable, so sharing
+// between the copied types is kept.
+class TypeCopier {
+    private final TypeStore target;
+    private final Function<TypeVar, TypeVar> rename;
+    private final Map<TypeVar, TypeVar> vars = new IdentityHashMap<>();
+
+    public TypeCopier(TypeStore target) {
+        this(target, v -> new TypeVar(target));
+    }
+
+    // rename is given the root variable of each unbound class.
+    TypeCopier(TypeStore target, Function<TypeVar, TypeVar> rename) {
+        this.target = target;
+        this.rename = rename;
+    }
+
+    // Iterative, like the unifier: work holds the types still to copy and,
+    // as an Integer param count, each function type to assemble once its
+    // parts are copied; copies collect on done. Parts are copied in the
+    // order a recursive copy would take, params then return type, so fresh
+    // variables are numbered the same.
+    TypeExpr copy(TypeExpr type) {
+        ArrayDeque<Object> work = new ArrayDeque<>();
+        List<TypeExpr> done = new ArrayList<>();
+        work.push(type);
+        while (!work.isEmpty()) {
+            Object next = work.pop();
+            if (next instanceof Integer) {
+                TypeExpr returnType = done.remove(done.size() - 1);
+                done.add(target.funcType(returnType, takeLast(done, (Integer) next)));
+                continue;
+            }
+            TypeExpr rep = ((TypeExpr) next).find();
+            if (rep instanceof TypeVar) {
+                done.add(vars.computeIfAbsent((TypeVar) rep, rename));
+            } else if (rep instanceof FuncType) {
+                FuncType funcType = (FuncType) rep;
+                work.push(funcType.paramTypes.size());
+                work.push(funcType.returnType);
+                for (int i = funcType.paramTypes.size() - 1; i >= 0; i--) {
+                    work.push(funcType.paramTypes.get(i));
+                }
+            } else {
+                done.add(rep); // constants and ErrorType are shared
+            }
+        }
+        return done.get(0);
+    }
+
+    // Removes the last count types of done and returns them in order.
+    static List<TypeExpr> takeLast(List<TypeExpr> done, int count) {
+        List<TypeExpr> tail = done.subList(done.size() - count, done.size());
+        List<TypeExpr> taken = new ArrayList<>(tail);
+        tail.clear();
+        return taken;
+    }
+}
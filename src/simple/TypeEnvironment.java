@@ -1,64 +1,43 @@
 package simple;
 
-import java.util.Deque;
+import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
+// The global scope a check leaves: function signatures and globals, by
+// name. It is what gets printed and cached; scopes during a check are the
+// Resolver's. Symbol ids are taken from the SymbolTable given.
 public class TypeEnvironment {
-    private final Deque<Map<String, TypeExpr>> scopeStack;
+    private final SymbolTable symbols;
+    private final Map<String, TypeExpr> globalScope = new HashMap<>();
     public TypeEnvironment(){
-        this.scopeStack = new LinkedList<>();
-        enterScope();
+        this(new SymbolTable());
     }
-    
-    public void enterScope(){
-        scopeStack.push(new HashMap<>());
-    }
-    public void exitScope(){
-        scopeStack.pop();
-    }
-    public TypeExpr lookup(String key){
-        for (Map<String,TypeExpr> sigmaMap : scopeStack) {
-            if(sigmaMap.containsKey(key)){
-                return sigmaMap.get(key);
-            }
-        }
-        throw new RuntimeException("Variable named " + key + " Not declared in this program");
+    public TypeEnvironment(SymbolTable symbols){
+        this.symbols = symbols;
     }
-    public void addVal(String name, TypeExpr value){
-        for (Map<String,TypeExpr> sigmaMap : scopeStack) {
-            if(sigmaMap.containsKey(name)){
-                sigmaMap.put(name, value);
-                return;
-            }
-        }
-        throw new RuntimeException("Variable named " + name + " Not declared in this program");
-
+    public void declare(int symbol, TypeExpr value){
+        declare(symbols.name(symbol), value);
     }
     public void declare(String name, TypeExpr value){
-        if (scopeStack.isEmpty()) {
-            throw new IllegalStateException("No scope is active.");
-        }
-        // Throws an error if the variable is already declared in the current scope.
-        if (scopeStack.peek().containsKey(name)) {
+        // Throws an error if the variable is already declared.
+        if (globalScope.putIfAbsent(name, value) != null) {
             throw new RuntimeException("Variable '" + name + "' is already defined in this scope.");
         }
-        scopeStack.peek().put(name, value);
+    }
+    // Function signatures and globals, in iteration order.
+    public Map<String, TypeExpr> globals(){
+        return Collections.unmodifiableMap(globalScope);
     }
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("{\n");
         // Only prints the outermost (global) scope
-        if (!scopeStack.isEmpty()) {
-            Map<String, TypeExpr> globalScope = scopeStack.getLast();
-            for (Map.Entry<String, TypeExpr> entry : globalScope.entrySet()) {
-                sb.append("  ").append(entry.getKey()).append(" = ").append(entry.getValue().toString()).append("\n");
-            }
+        for (Map.Entry<String, TypeExpr> entry : globalScope.entrySet()) {
+            sb.append("  ").append(entry.getKey()).append(" = ").append(entry.getValue().toString()).append("\n");
         }
         sb.append("}");
         return sb.toString();
@@ -67,68 +46,110 @@ public class TypeEnvironment {
 abstract class TypeExpr{
     public TypeExpr find(){return this;}
 }
+// Type constants are canonical: there is exactly one instance per Type, so
+// they compare by reference. Use TypeConst.of rather than a constructor.
 class TypeConst extends TypeExpr{
+    private static final TypeConst[] CANONICAL = new TypeConst[Type.values().length];
+    static {
+        for (Type type : Type.values()) {
+            CANONICAL[type.ordinal()] = new TypeConst(type);
+        }
+    }
     final Type type;
     
-    public TypeConst(Type type) {
+    private TypeConst(Type type) {
         this.type = type;
     }
 
+    public static TypeConst of(Type type) {
+        return CANONICAL[type.ordinal()];
+    }
+
     @Override
     public String toString() {
         return type.toString();
     }
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        TypeConst typeConst = (TypeConst) o;
-        return type.equals(typeConst.type);
-    }
-
-    @Override
-    public int hashCode() { return Objects.hash(type); }
-    
 }
 class TypeVar extends TypeExpr{
-    private static int nextId = 0;
+    final TypeStore store;
     final int id;
-    TypeExpr instance = null;
-    public TypeVar(){
-        this.id = nextId++;
+    public TypeVar(TypeStore store){
+        this.store = store;
+        this.id = store.register(this);
+    }
+    TypeVar(TypeStore store, int id){
+        this.store = store;
+        this.id = store.registerAt(this, id);
     }
     @Override
     public TypeExpr find() {
-        if (instance != null) {
-            TypeExpr root = instance.find();
-            instance = root;
-            return root;
-        }
-        return this; // This TypeVar is its own leader for now.
+        return store.resolve(id);
     }
     @Override
     public String toString() {
-        if(instance != null)
-            return instance.toString();
+        TypeExpr rep = find();
+        if(rep != this)
+            return rep.toString();
         return "t: " + String.valueOf(id);
     }
 }
+// Type of an expression whose error has already been reported. It unifies
+// with anything so one mistake does not cascade into a string of follow-ups.
+class ErrorType extends TypeExpr{
+    static final ErrorType INSTANCE = new ErrorType();
+    private ErrorType(){}
+    @Override
+    public String toString() {
+        return "<error>";
+    }
+}
+// Build through TypeStore.funcType so that ground function types are interned.
 class FuncType extends TypeExpr{
     final TypeExpr returnType;
     final List<TypeExpr> paramTypes;
+    // True when no type variable is reachable from this type at construction
+    // time. Bindings only ever make types more ground, so this stays valid.
+    final boolean ground;
     public FuncType(TypeExpr returnType, List<TypeExpr> paramTypes) {
         this.returnType = returnType;
         this.paramTypes = paramTypes;
+        boolean g = isGround(returnType);
+        for (int i = 0; g && i < paramTypes.size(); i++) {
+            g = isGround(paramTypes.get(i));
+        }
+        this.ground = g;
+    }
+    private static boolean isGround(TypeExpr type) {
+        TypeExpr rep = type.find();
+        return rep instanceof TypeConst || (rep instanceof FuncType && ((FuncType) rep).ground);
     }
+    // "(params) -> return", printed from an explicit stack like the
+    // unifier's: work holds the types still to print and the text between
+    // them, so a deeply nested type costs heap, not stack frames.
     @Override
     public String toString() {
-        // Use a stream to convert each parameter's TypeExpr to its string representation.
-        String paramsStr = paramTypes.stream()
-                                     .map(TypeExpr::toString) // Recursively calls toString on each type
-                                     .collect(Collectors.joining(", "));
-
-        // Combine the parameter string and the return type string into the final format.
-        return String.format("(%s) -> %s", paramsStr, returnType.toString());
+        StringBuilder out = new StringBuilder();
+        ArrayDeque<Object> work = new ArrayDeque<>();
+        work.push(this);
+        while (!work.isEmpty()) {
+            Object next = work.pop();
+            TypeExpr rep = next instanceof TypeExpr ? ((TypeExpr) next).find() : null;
+            if (!(rep instanceof FuncType)) {
+                out.append(rep == null ? next : rep);
+                continue;
+            }
+            FuncType funcType = (FuncType) rep;
+            work.push(funcType.returnType);
+            work.push(") -> ");
+            for (int i = funcType.paramTypes.size() - 1; i >= 0; i--) {
+                work.push(funcType.paramTypes.get(i));
+                if (i > 0) {
+                    work.push(", ");
+                }
+            }
+            work.push("(");
+        }
+        return out.toString();
     }
     
 }
\ No newline at end of file
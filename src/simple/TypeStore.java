@@ -0,0 +1,222 @@
+package simple;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Union-find store for type variables. A TypeVar is just an int id into these
+// arrays; parent/rank give the equivalence classes and binding holds the
+// non-variable type a class has been unified with (if any).
+class TypeStore {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] parent;
+    private int[] rank;
+    private TypeExpr[] binding;
+    private TypeVar[] vars;
+    private int[] mark;
+    private final AtomicInteger stamps = new AtomicInteger();
+    private int size;
+    private final TypeInterner interner = new TypeInterner();
+
+    public TypeStore() {
+        this.parent = new int[INITIAL_CAPACITY];
+        this.rank = new int[INITIAL_CAPACITY];
+        this.binding = new TypeExpr[INITIAL_CAPACITY];
+        this.vars = new TypeVar[INITIAL_CAPACITY];
+        this.mark = new int[INITIAL_CAPACITY];
+    }
+
+    int register(TypeVar var) {
+        if (size == parent.length) {
+            grow();
+        }
+        int id = size++;
+        parent[id] = id;
+        vars[id] = var;
+        return id;
+    }
+
+    // Registers var under a chosen id, for rebuilding types whose variable
+    // numbering must be kept (see SignatureCache). Ids are never reused.
+    int registerAt(TypeVar var, int id) {
+        while (id >= parent.length) {
+            grow();
+        }
+        parent[id] = id;
+        vars[id] = var;
+        size = Math.max(size, id + 1);
+        return id;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Root of the class containing id, compressing the path on the way back.
+    int find(int id) {
+        int root = id;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        while (parent[id] != root) {
+            int next = parent[id];
+            parent[id] = root;
+            id = next;
+        }
+        return root;
+    }
+
+    // The representative type of id: the bound type if there is one,
+    // otherwise the TypeVar at the root of its class.
+    TypeExpr resolve(int id) {
+        int root = find(id);
+        TypeExpr bound = binding[root];
+        return bound != null ? bound : vars[root];
+    }
+
+    // Merges two unbound classes. On equal rank a is placed under b.
+    void union(int a, int b) {
+        int ra = find(a), rb = find(b);
+        if (ra == rb) {
+            return;
+        }
+        if (rank[ra] > rank[rb]) {
+            parent[rb] = ra;
+        } else {
+            parent[ra] = rb;
+            if (rank[ra] == rank[rb]) {
+                rank[rb]++;
+            }
+        }
+    }
+
+    void bind(int id, TypeExpr type) {
+        binding[find(id)] = type;
+    }
+
+    TypeVar var(int id) {
+        return vars[id];
+    }
+
+    // Rank and bound type (null if none) of a class root, which together
+    // with every variable's root are what later unification depends on; see
+    // ComponentSummary, which saves them and puts them back with restore.
+    int rank(int root) {
+        return rank[root];
+    }
+
+    TypeExpr binding(int root) {
+        return binding[root];
+    }
+
+    // Places id directly under root, and gives a root its rank.
+    void restore(int id, int root, int rootRank) {
+        parent[id] = root;
+        if (id == root) {
+            rank[id] = rootRank;
+        }
+    }
+
+    // Function type constructor. Ground results are hash-consed, so two
+    // structurally equal ground types are always the same object.
+    FuncType funcType(TypeExpr returnType, List<TypeExpr> paramTypes) {
+        return funcType(returnType, paramTypes, interner);
+    }
+
+    // The same, hash-consing in the given table instead of the store's. A
+    // TypeInterner is not thread-safe, so threads that build types in one
+    // store at the same time each bring their own; equal ground types from
+    // different tables are then equal but not the same object, which the
+    // unifier does not rely on.
+    FuncType funcType(TypeExpr returnType, List<TypeExpr> paramTypes, TypeInterner interner) {
+        FuncType type = new FuncType(returnType, paramTypes);
+        return type.ground ? interner.intern(type) : type;
+    }
+
+    // Starts a new traversal; classes marked during an earlier one read as
+    // unvisited. Stamps are unique even when disjoint sets of variables are
+    // being unified on different threads.
+    int nextStamp() {
+        return stamps.incrementAndGet();
+    }
+
+    // Marks the class of id as visited in the traversal with the given stamp,
+    // returning false if it already was.
+    boolean visit(int id, int stamp) {
+        int root = find(id);
+        if (mark[root] == stamp) {
+            return false;
+        }
+        mark[root] = stamp;
+        return true;
+    }
+
+    private void grow() {
+        int capacity = parent.length * 2;
+        parent = Arrays.copyOf(parent, capacity);
+        rank = Arrays.copyOf(rank, capacity);
+        binding = Arrays.copyOf(binding, capacity);
+        vars = Arrays.copyOf(vars, capacity);
+        mark = Arrays.copyOf(mark, capacity);
+    }
+}
+
+// Open-addressing hash-cons table for ground function types. Components of a
+// ground type are constants or other interned types, so they are compared by
+// reference after resolving through find().
+class TypeInterner {
+    private FuncType[] table = new FuncType[64];
+    private int count;
+
+    FuncType intern(FuncType type) {
+        int mask = table.length - 1;
+        int i = hash(type) & mask;
+        for (FuncType existing = table[i]; existing != null; existing = table[i]) {
+            if (sameShape(existing, type)) {
+                return existing;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = type;
+        if (++count * 2 > table.length) {
+            rehash();
+        }
+        return type;
+    }
+
+    private static int hash(FuncType type) {
+        int h = System.identityHashCode(type.returnType.find());
+        for (TypeExpr param : type.paramTypes) {
+            h = h * 31 + System.identityHashCode(param.find());
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean sameShape(FuncType a, FuncType b) {
+        if (a.returnType.find() != b.returnType.find() || a.paramTypes.size() != b.paramTypes.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.paramTypes.size(); i++) {
+            if (a.paramTypes.get(i).find() != b.paramTypes.get(i).find()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        FuncType[] old = table;
+        table = new FuncType[old.length * 2];
+        int mask = table.length - 1;
+        for (FuncType type : old) {
+            if (type != null) {
+                int i = hash(type) & mask;
+                while (table[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = type;
+            }
+        }
+    }
+}
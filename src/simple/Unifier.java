@@ -0,0 +1,124 @@
+package simple;
+
+import java.util.ArrayDeque;
+
+// Worklist unifier. Pairs still to be unified are kept on an explicit stack
+// rather than the Java call stack, so deeply nested function types cost heap,
+// not stack frames. Pairs are pushed in reverse so they are visited in the
+// same order as a recursive walk: return type first, then each parameter.
+class Unifier {
+    private final TypeStore store;
+    private final ArrayDeque<TypeExpr> work = new ArrayDeque<>();
+    private final ArrayDeque<TypeExpr> pending = new ArrayDeque<>();
+
+    public Unifier(TypeStore store) {
+        this.store = store;
+    }
+
+    // Returns null on success, otherwise the error message.
+    // Bindings made before the failing pair are kept.
+    String tryUnify(TypeExpr t1, TypeExpr t2) {
+        work.push(t2);
+        work.push(t1);
+        try {
+            while (!work.isEmpty()) {
+                String error = step(work.pop(), work.pop());
+                if (error != null) {
+                    return error;
+                }
+            }
+            return null;
+        } finally {
+            work.clear();
+        }
+    }
+
+    private String step(TypeExpr t1, TypeExpr t2) {
+        TypeExpr rep1 = t1.find(), rep2 = t2.find();
+        if(rep1 == rep2){
+            //same type
+            return null;
+        }
+        if(rep1 == ErrorType.INSTANCE || rep2 == ErrorType.INSTANCE){
+            //already reported, unifies with anything
+            return null;
+        }
+        if(rep1 instanceof TypeVar && rep2 instanceof TypeVar){
+            store.union(((TypeVar)rep1).id, ((TypeVar)rep2).id);
+            return null;
+        }
+        if(rep1 instanceof TypeVar){
+            return bind((TypeVar)rep1, rep2);
+        }
+        if(rep2 instanceof TypeVar){
+            return bind((TypeVar)rep2, rep1);
+        }
+        if(rep1 instanceof TypeConst && rep2 instanceof TypeConst){
+            //constants are canonical, so rep1 != rep2 means they differ
+            return "Type Mismatch: " + rep1.toString() + " " + rep2.toString();
+        }
+        if (rep1 instanceof FuncType && rep2 instanceof FuncType) {
+            FuncType f1 = (FuncType) rep1;
+            FuncType f2 = (FuncType) rep2;
+
+            // Check for the same number of parameters.
+            if (f1.paramTypes.size() != f2.paramTypes.size()) {
+                return "Function arity mismatch: Cannot unify " + f1 + " with " + f2;
+            }
+            //parameters go on first so the return types are popped first
+            for (int i = f1.paramTypes.size() - 1; i >= 0; i--) {
+                work.push(f2.paramTypes.get(i));
+                work.push(f1.paramTypes.get(i));
+            }
+            work.push(f2.returnType);
+            work.push(f1.returnType);
+            return null;
+        }
+        return "Type Mismatch: " + rep1.toString() + " " + rep2.toString();
+    }
+
+    private String bind(TypeVar var, TypeExpr type) {
+        if (type instanceof FuncType && occurs(var, (FuncType) type)) {
+            return "Infinite type: " + var + " occurs in " + type;
+        }
+        store.bind(var.id, type);
+        return null;
+    }
+
+    // Occurs check. Ground function types are skipped outright, and each
+    // variable class is expanded at most once per check via the store's
+    // visit stamps, so shared structure is not walked twice.
+    private boolean occurs(TypeVar var, FuncType type) {
+        if (type.ground) {
+            return false;
+        }
+        int root = store.find(var.id);
+        int stamp = store.nextStamp();
+        pending.push(type);
+        try {
+            while (!pending.isEmpty()) {
+                TypeExpr t = pending.pop();
+                if (t instanceof TypeVar) {
+                    TypeVar v = (TypeVar) t;
+                    if (store.find(v.id) == root) {
+                        return true;
+                    }
+                    if (!store.visit(v.id, stamp)) {
+                        continue;
+                    }
+                    t = v.find();
+                }
+                if (t instanceof FuncType && !((FuncType) t).ground) {
+                    FuncType f = (FuncType) t;
+                    pending.push(f.returnType);
+                    for (TypeExpr param : f.paramTypes) {
+                        pending.push(param);
+                    }
+                }
+            }
+            return false;
+        } finally {
+            pending.clear();
+        }
+    }
+}
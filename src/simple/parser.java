@@ -52,107 +52,107 @@ public class parser extends java_cup.runtime.lr_parser {
   /** Parse-action table. */
   protected static final short[][] _action_table = 
     unpackFromStrings(new String[] {
-    "\000\114\000\026\002\ufffe\006\ufffe\022\ufffe\023\ufffe\024" +
-    "\ufffe\026\ufffe\027\ufffe\032\ufffe\033\ufffe\034\ufffe\001\002" +
-    "\000\004\002\116\001\002\000\026\002\ufff1\006\ufff1\022" +
-    "\ufff1\023\ufff1\024\ufff1\026\ufff1\027\ufff1\032\006\033\ufff1" +
+    "\000\114\000\026\002\ufffe\012\ufffe\013\ufffe\015\ufffe\016" +
+    "\ufffe\017\ufffe\020\ufffe\021\ufffe\022\ufffe\034\ufffe\001\002" +
+    "\000\004\002\116\001\002\000\026\002\ufff1\012\ufff1\013" +
+    "\ufff1\015\006\016\ufff1\017\ufff1\020\ufff1\021\ufff1\022\ufff1" +
     "\034\ufff1\001\002\000\004\034\106\001\002\000\026\002" +
-    "\uffff\006\uffff\022\uffff\023\uffff\024\uffff\026\uffff\027\uffff" +
-    "\032\uffff\033\uffff\034\uffff\001\002\000\024\002\uffeb\006" +
-    "\uffeb\022\016\023\014\024\uffeb\026\uffeb\027\uffeb\033\011" +
+    "\uffff\012\uffff\013\uffff\015\uffff\016\uffff\017\uffff\020\uffff" +
+    "\021\uffff\022\uffff\034\uffff\001\002\000\024\002\uffeb\012" +
+    "\016\013\014\016\011\017\uffeb\020\uffeb\021\uffeb\022\uffeb" +
     "\034\uffeb\001\002\000\004\034\uffed\001\002\000\016\002" +
-    "\001\006\027\024\026\026\024\027\021\034\022\001\002" +
+    "\001\017\027\020\026\021\024\022\021\034\022\001\002" +
     "\000\004\034\020\001\002\000\004\034\uffee\001\002\000" +
-    "\004\011\017\001\002\000\004\034\uffef\001\002\000\026" +
-    "\002\ufff2\006\ufff2\007\ufff2\022\ufff2\023\ufff2\024\ufff2\026" +
-    "\ufff2\027\ufff2\033\ufff2\034\ufff2\001\002\000\010\005\ufff0" +
-    "\010\ufff0\011\ufff0\001\002\000\014\004\037\030\036\031" +
-    "\040\034\041\035\034\001\002\000\004\012\101\001\002" +
-    "\000\020\002\uffec\006\uffec\007\uffec\024\uffec\026\uffec\027" +
+    "\004\010\017\001\002\000\004\034\uffef\001\002\000\026" +
+    "\002\ufff2\006\ufff2\012\ufff2\013\ufff2\016\ufff2\017\ufff2\020" +
+    "\ufff2\021\ufff2\022\ufff2\034\ufff2\001\002\000\010\005\ufff0" +
+    "\007\ufff0\010\ufff0\001\002\000\014\004\037\023\036\024" +
+    "\040\034\041\035\034\001\002\000\004\011\101\001\002" +
+    "\000\020\002\uffec\006\uffec\017\uffec\020\uffec\021\uffec\022" +
     "\uffec\034\uffec\001\002\000\004\004\075\001\002\000\032" +
-    "\002\ufff9\006\ufff9\007\ufff9\022\ufff9\023\ufff9\024\ufff9\025" +
-    "\ufff9\026\ufff9\027\ufff9\032\ufff9\033\ufff9\034\ufff9\001\002" +
-    "\000\004\004\033\001\002\000\024\006\ufff1\007\ufff1\022" +
-    "\ufff1\023\ufff1\024\ufff1\026\ufff1\027\ufff1\033\ufff1\034\ufff1" +
-    "\001\002\000\024\006\uffeb\007\uffeb\022\016\023\014\024" +
-    "\uffeb\026\uffeb\027\uffeb\033\011\034\uffeb\001\002\000\016" +
-    "\006\027\007\032\024\026\026\024\027\021\034\022\001" +
-    "\002\000\032\002\ufff3\006\ufff3\007\ufff3\022\ufff3\023\ufff3" +
-    "\024\ufff3\025\ufff3\026\ufff3\027\ufff3\032\ufff3\033\ufff3\034" +
-    "\ufff3\001\002\000\014\004\037\030\036\031\040\034\041" +
-    "\035\034\001\002\000\026\005\uffe2\010\uffe2\011\uffe2\013" +
-    "\uffe2\014\uffe2\015\uffe2\016\uffe2\017\uffe2\020\uffe2\021\uffe2" +
-    "\001\002\000\026\005\uffe3\010\uffe3\011\uffe3\013\uffe3\014" +
-    "\uffe3\015\uffe3\016\uffe3\017\uffe3\020\uffe3\021\uffe3\001\002" +
-    "\000\026\005\uffe1\010\uffe1\011\uffe1\013\uffe1\014\uffe1\015" +
-    "\uffe1\016\uffe1\017\uffe1\020\uffe1\021\uffe1\001\002\000\014" +
-    "\004\037\030\036\031\040\034\041\035\034\001\002\000" +
-    "\026\005\uffe0\010\uffe0\011\uffe0\013\uffe0\014\uffe0\015\uffe0" +
-    "\016\uffe0\017\uffe0\020\uffe0\021\uffe0\001\002\000\030\004" +
-    "\065\005\uffdf\010\uffdf\011\uffdf\013\uffdf\014\uffdf\015\uffdf" +
-    "\016\uffdf\017\uffdf\020\uffdf\021\uffdf\001\002\000\022\005" +
-    "\052\013\043\014\045\015\046\016\047\017\051\020\044" +
-    "\021\050\001\002\000\014\004\037\030\036\031\040\034" +
-    "\041\035\034\001\002\000\014\004\037\030\036\031\040" +
-    "\034\041\035\034\001\002\000\014\004\037\030\036\031" +
-    "\040\034\041\035\034\001\002\000\014\004\037\030\036" +
-    "\031\040\034\041\035\034\001\002\000\014\004\037\030" +
-    "\036\031\040\034\041\035\034\001\002\000\014\004\037" +
-    "\030\036\031\040\034\041\035\034\001\002\000\014\004" +
-    "\037\030\036\031\040\034\041\035\034\001\002\000\014" +
-    "\006\027\024\026\026\024\027\021\034\022\001\002\000" +
-    "\032\002\ufff6\006\ufff6\007\ufff6\022\ufff6\023\ufff6\024\ufff6" +
-    "\025\054\026\ufff6\027\ufff6\032\ufff6\033\ufff6\034\ufff6\001" +
-    "\002\000\014\006\027\024\026\026\024\027\021\034\022" +
-    "\001\002\000\032\002\ufff7\006\ufff7\007\ufff7\022\ufff7\023" +
-    "\ufff7\024\ufff7\025\ufff7\026\ufff7\027\ufff7\032\ufff7\033\ufff7" +
-    "\034\ufff7\001\002\000\026\005\uffe9\010\uffe9\011\uffe9\013" +
-    "\uffe9\014\uffe9\015\uffe9\016\uffe9\017\uffe9\020\044\021\050" +
-    "\001\002\000\026\005\uffe7\010\uffe7\011\uffe7\013\uffe7\014" +
-    "\uffe7\015\uffe7\016\uffe7\017\uffe7\020\uffe7\021\uffe7\001\002" +
-    "\000\026\005\uffea\010\uffea\011\uffea\013\uffea\014\uffea\015" +
-    "\uffea\016\uffea\017\uffea\020\044\021\050\001\002\000\026" +
-    "\005\uffe4\010\uffe4\011\uffe4\013\uffe4\014\uffe4\015\uffe4\016" +
-    "\047\017\051\020\044\021\050\001\002\000\026\005\uffe5" +
-    "\010\uffe5\011\uffe5\013\uffe5\014\uffe5\015\uffe5\016\047\017" +
-    "\051\020\044\021\050\001\002\000\026\005\uffe8\010\uffe8" +
-    "\011\uffe8\013\uffe8\014\uffe8\015\uffe8\016\uffe8\017\uffe8\020" +
-    "\uffe8\021\uffe8\001\002\000\026\005\uffe6\010\uffe6\011\uffe6" +
-    "\013\uffe6\014\045\015\046\016\047\017\051\020\044\021" +
-    "\050\001\002\000\020\004\037\005\uffda\010\uffda\030\036" +
-    "\031\040\034\041\035\034\001\002\000\006\005\071\010" +
-    "\070\001\002\000\024\005\uffdb\010\uffdb\013\043\014\045" +
-    "\015\046\016\047\017\051\020\044\021\050\001\002\000" +
-    "\014\004\037\030\036\031\040\034\041\035\034\001\002" +
-    "\000\026\005\uffde\010\uffde\011\uffde\013\uffde\014\uffde\015" +
-    "\uffde\016\uffde\017\uffde\020\uffde\021\uffde\001\002\000\024" +
-    "\005\uffdc\010\uffdc\013\043\014\045\015\046\016\047\017" +
-    "\051\020\044\021\050\001\002\000\022\005\074\013\043" +
-    "\014\045\015\046\016\047\017\051\020\044\021\050\001" +
-    "\002\000\026\005\uffdd\010\uffdd\011\uffdd\013\uffdd\014\uffdd" +
-    "\015\uffdd\016\uffdd\017\uffdd\020\uffdd\021\uffdd\001\002\000" +
-    "\014\004\037\030\036\031\040\034\041\035\034\001\002" +
-    "\000\022\005\077\013\043\014\045\015\046\016\047\017" +
-    "\051\020\044\021\050\001\002\000\014\006\027\024\026" +
-    "\026\024\027\021\034\022\001\002\000\032\002\ufff5\006" +
-    "\ufff5\007\ufff5\022\ufff5\023\ufff5\024\ufff5\025\ufff5\026\ufff5" +
-    "\027\ufff5\032\ufff5\033\ufff5\034\ufff5\001\002\000\014\004" +
-    "\037\030\036\031\040\034\041\035\034\001\002\000\022" +
-    "\011\103\013\043\014\045\015\046\016\047\017\051\020" +
-    "\044\021\050\001\002\000\032\002\ufff8\006\ufff8\007\ufff8" +
-    "\022\ufff8\023\ufff8\024\ufff8\025\ufff8\026\ufff8\027\ufff8\032" +
-    "\ufff8\033\ufff8\034\ufff8\001\002\000\022\011\105\013\043" +
-    "\014\045\015\046\016\047\017\051\020\044\021\050\001" +
-    "\002\000\032\002\ufff4\006\ufff4\007\ufff4\022\ufff4\023\ufff4" +
-    "\024\ufff4\025\ufff4\026\ufff4\027\ufff4\032\ufff4\033\ufff4\034" +
+    "\002\ufff9\006\ufff9\012\ufff9\013\ufff9\014\ufff9\015\ufff9\016" +
+    "\ufff9\017\ufff9\020\ufff9\021\ufff9\022\ufff9\034\ufff9\001\002" +
+    "\000\004\004\033\001\002\000\024\006\ufff1\012\ufff1\013" +
+    "\ufff1\016\ufff1\017\ufff1\020\ufff1\021\ufff1\022\ufff1\034\ufff1" +
+    "\001\002\000\024\006\uffeb\012\016\013\014\016\011\017" +
+    "\uffeb\020\uffeb\021\uffeb\022\uffeb\034\uffeb\001\002\000\016" +
+    "\006\032\017\027\020\026\021\024\022\021\034\022\001" +
+    "\002\000\032\002\ufff3\006\ufff3\012\ufff3\013\ufff3\014\ufff3" +
+    "\015\ufff3\016\ufff3\017\ufff3\020\ufff3\021\ufff3\022\ufff3\034" +
+    "\ufff3\001\002\000\014\004\037\023\036\024\040\034\041" +
+    "\035\034\001\002\000\026\005\uffe2\007\uffe2\010\uffe2\025" +
+    "\uffe2\026\uffe2\027\uffe2\030\uffe2\031\uffe2\032\uffe2\033\uffe2" +
+    "\001\002\000\026\005\uffe3\007\uffe3\010\uffe3\025\uffe3\026" +
+    "\uffe3\027\uffe3\030\uffe3\031\uffe3\032\uffe3\033\uffe3\001\002" +
+    "\000\026\005\uffe1\007\uffe1\010\uffe1\025\uffe1\026\uffe1\027" +
+    "\uffe1\030\uffe1\031\uffe1\032\uffe1\033\uffe1\001\002\000\014" +
+    "\004\037\023\036\024\040\034\041\035\034\001\002\000" +
+    "\026\005\uffe0\007\uffe0\010\uffe0\025\uffe0\026\uffe0\027\uffe0" +
+    "\030\uffe0\031\uffe0\032\uffe0\033\uffe0\001\002\000\030\004" +
+    "\065\005\uffdf\007\uffdf\010\uffdf\025\uffdf\026\uffdf\027\uffdf" +
+    "\030\uffdf\031\uffdf\032\uffdf\033\uffdf\001\002\000\022\005" +
+    "\052\025\043\026\045\027\046\030\047\031\051\032\044" +
+    "\033\050\001\002\000\014\004\037\023\036\024\040\034" +
+    "\041\035\034\001\002\000\014\004\037\023\036\024\040" +
+    "\034\041\035\034\001\002\000\014\004\037\023\036\024" +
+    "\040\034\041\035\034\001\002\000\014\004\037\023\036" +
+    "\024\040\034\041\035\034\001\002\000\014\004\037\023" +
+    "\036\024\040\034\041\035\034\001\002\000\014\004\037" +
+    "\023\036\024\040\034\041\035\034\001\002\000\014\004" +
+    "\037\023\036\024\040\034\041\035\034\001\002\000\014" +
+    "\017\027\020\026\021\024\022\021\034\022\001\002\000" +
+    "\032\002\ufff6\006\ufff6\012\ufff6\013\ufff6\014\054\015\ufff6" +
+    "\016\ufff6\017\ufff6\020\ufff6\021\ufff6\022\ufff6\034\ufff6\001" +
+    "\002\000\014\017\027\020\026\021\024\022\021\034\022" +
+    "\001\002\000\032\002\ufff7\006\ufff7\012\ufff7\013\ufff7\014" +
+    "\ufff7\015\ufff7\016\ufff7\017\ufff7\020\ufff7\021\ufff7\022\ufff7" +
+    "\034\ufff7\001\002\000\026\005\uffe9\007\uffe9\010\uffe9\025" +
+    "\uffe9\026\uffe9\027\uffe9\030\uffe9\031\uffe9\032\044\033\050" +
+    "\001\002\000\026\005\uffe7\007\uffe7\010\uffe7\025\uffe7\026" +
+    "\uffe7\027\uffe7\030\uffe7\031\uffe7\032\uffe7\033\uffe7\001\002" +
+    "\000\026\005\uffea\007\uffea\010\uffea\025\uffea\026\uffea\027" +
+    "\uffea\030\uffea\031\uffea\032\044\033\050\001\002\000\026" +
+    "\005\uffe4\007\uffe4\010\uffe4\025\uffe4\026\uffe4\027\uffe4\030" +
+    "\047\031\051\032\044\033\050\001\002\000\026\005\uffe5" +
+    "\007\uffe5\010\uffe5\025\uffe5\026\uffe5\027\uffe5\030\047\031" +
+    "\051\032\044\033\050\001\002\000\026\005\uffe8\007\uffe8" +
+    "\010\uffe8\025\uffe8\026\uffe8\027\uffe8\030\uffe8\031\uffe8\032" +
+    "\uffe8\033\uffe8\001\002\000\026\005\uffe6\007\uffe6\010\uffe6" +
+    "\025\uffe6\026\045\027\046\030\047\031\051\032\044\033" +
+    "\050\001\002\000\020\004\037\005\uffda\007\uffda\023\036" +
+    "\024\040\034\041\035\034\001\002\000\006\005\071\007" +
+    "\070\001\002\000\024\005\uffdb\007\uffdb\025\043\026\045" +
+    "\027\046\030\047\031\051\032\044\033\050\001\002\000" +
+    "\014\004\037\023\036\024\040\034\041\035\034\001\002" +
+    "\000\026\005\uffde\007\uffde\010\uffde\025\uffde\026\uffde\027" +
+    "\uffde\030\uffde\031\uffde\032\uffde\033\uffde\001\002\000\024" +
+    "\005\uffdc\007\uffdc\025\043\026\045\027\046\030\047\031" +
+    "\051\032\044\033\050\001\002\000\022\005\074\025\043" +
+    "\026\045\027\046\030\047\031\051\032\044\033\050\001" +
+    "\002\000\026\005\uffdd\007\uffdd\010\uffdd\025\uffdd\026\uffdd" +
+    "\027\uffdd\030\uffdd\031\uffdd\032\uffdd\033\uffdd\001\002\000" +
+    "\014\004\037\023\036\024\040\034\041\035\034\001\002" +
+    "\000\022\005\077\025\043\026\045\027\046\030\047\031" +
+    "\051\032\044\033\050\001\002\000\014\017\027\020\026" +
+    "\021\024\022\021\034\022\001\002\000\032\002\ufff5\006" +
+    "\ufff5\012\ufff5\013\ufff5\014\ufff5\015\ufff5\016\ufff5\017\ufff5" +
+    "\020\ufff5\021\ufff5\022\ufff5\034\ufff5\001\002\000\014\004" +
+    "\037\023\036\024\040\034\041\035\034\001\002\000\022" +
+    "\010\103\025\043\026\045\027\046\030\047\031\051\032" +
+    "\044\033\050\001\002\000\032\002\ufff8\006\ufff8\012\ufff8" +
+    "\013\ufff8\014\ufff8\015\ufff8\016\ufff8\017\ufff8\020\ufff8\021" +
+    "\ufff8\022\ufff8\034\ufff8\001\002\000\022\010\105\025\043" +
+    "\026\045\027\046\030\047\031\051\032\044\033\050\001" +
+    "\002\000\032\002\ufff4\006\ufff4\012\ufff4\013\ufff4\014\ufff4" +
+    "\015\ufff4\016\ufff4\017\ufff4\020\ufff4\021\ufff4\022\ufff4\034" +
     "\ufff4\001\002\000\004\004\107\001\002\000\014\005\ufffa" +
-    "\010\ufffa\022\016\023\014\033\011\001\002\000\006\005" +
-    "\113\010\112\001\002\000\006\005\ufffb\010\ufffb\001\002" +
-    "\000\010\022\016\023\014\033\011\001\002\000\014\006" +
-    "\027\024\026\026\024\027\021\034\022\001\002\000\026" +
-    "\002\ufffd\006\ufffd\022\ufffd\023\ufffd\024\ufffd\026\ufffd\027" +
-    "\ufffd\032\ufffd\033\ufffd\034\ufffd\001\002\000\006\005\ufffc" +
-    "\010\ufffc\001\002\000\004\002\000\001\002" });
+    "\007\ufffa\012\016\013\014\016\011\001\002\000\006\005" +
+    "\113\007\112\001\002\000\006\005\ufffb\007\ufffb\001\002" +
+    "\000\010\012\016\013\014\016\011\001\002\000\014\017" +
+    "\027\020\026\021\024\022\021\034\022\001\002\000\026" +
+    "\002\ufffd\012\ufffd\013\ufffd\015\ufffd\016\ufffd\017\ufffd\020" +
+    "\ufffd\021\ufffd\022\ufffd\034\ufffd\001\002\000\006\005\ufffc" +
+    "\007\ufffc\001\002\000\004\002\000\001\002" });
 
   /** Access to parse-action table. */
   public short[][] action_table() {return _action_table;}
@@ -231,7 +231,10 @@ public class parser extends java_cup.runtime.lr_parser {
 
 
 
-    // You can add helper methods or fields here if needed.
+    // Identifier tokens carry symbol ids; the names are in the lexer's table.
+    SymbolTable symbols() {
+        return ((TokenSource) getScanner()).symbols();
+    }
 
 
 /** Cup generated class to encapsulate user supplied action code.*/
@@ -271,7 +274,7 @@ class CUP$parser$actions {
 		int mainleft = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
 		int mainright = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
 		List<Stmt> main = (List<Stmt>)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
-		 RESULT = new ProgramNode(fns, globals, main); 
+		 RESULT = new ProgramNode(fns, globals, main, parser.symbols()); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("program",0, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -320,14 +323,14 @@ class CUP$parser$actions {
               FuncDef RESULT =null;
 		int nameleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-4)).left;
 		int nameright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-4)).right;
-		String name = (String)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-4)).value;
+		Integer name = (Integer)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-4)).value;
 		int pleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
 		int pright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).right;
 		List<VarDecl> p = (List<VarDecl>)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-2)).value;
 		int bodyleft = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
 		int bodyright = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
 		Stmt body = (Stmt)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
-		 RESULT = new FuncDef(name, p, body); 
+		 RESULT = new FuncDef(name, parser.symbols().name(name), p, body, Position.of(nameleft, nameright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("func_definition",2, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-5)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -386,11 +389,11 @@ class CUP$parser$actions {
               Stmt RESULT =null;
 		int idleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-3)).left;
 		int idright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-3)).right;
-		String id = (String)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-3)).value;
+		Integer id = (Integer)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-3)).value;
 		int eleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left;
 		int eright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).right;
 		Expr e = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-1)).value;
-		 RESULT = new AssignStmt(id, e); 
+		 RESULT = new AssignStmt(id, parser.symbols().name(id), e, Position.of(idleft, idright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("stmt",5, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-3)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -399,6 +402,9 @@ class CUP$parser$actions {
           case 10: // stmt ::= IF LEFT_PAREN expr RIGHT_PAREN stmt ELSE stmt 
             {
               Stmt RESULT =null;
+		int kwleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-6)).left;
+		int kwright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-6)).right;
+		Void kw = (Void)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-6)).value;
 		int condleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-4)).left;
 		int condright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-4)).right;
 		Expr cond = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-4)).value;
@@ -408,7 +414,7 @@ class CUP$parser$actions {
 		int eleft = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
 		int eright = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
 		Stmt e = (Stmt)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
-		 RESULT = new IfStmt(cond, t, e); 
+		 RESULT = new IfStmt(cond, t, e, Position.of(kwleft, kwright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("stmt",5, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-6)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -417,13 +423,16 @@ class CUP$parser$actions {
           case 11: // stmt ::= IF LEFT_PAREN expr RIGHT_PAREN stmt 
             {
               Stmt RESULT =null;
+		int kwleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-4)).left;
+		int kwright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-4)).right;
+		Void kw = (Void)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-4)).value;
 		int condleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
 		int condright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).right;
 		Expr cond = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-2)).value;
 		int tleft = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
 		int tright = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
 		Stmt t = (Stmt)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
-		 RESULT = new IfStmt(cond, t, null); 
+		 RESULT = new IfStmt(cond, t, null, Position.of(kwleft, kwright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("stmt",5, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-4)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -432,13 +441,16 @@ class CUP$parser$actions {
           case 12: // stmt ::= WHILE LEFT_PAREN expr RIGHT_PAREN stmt 
             {
               Stmt RESULT =null;
+		int kwleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-4)).left;
+		int kwright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-4)).right;
+		Void kw = (Void)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-4)).value;
 		int condleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
 		int condright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).right;
 		Expr cond = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-2)).value;
 		int bodyleft = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
 		int bodyright = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
 		Stmt body = (Stmt)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
-		 RESULT = new LoopStmt(cond, body); 
+		 RESULT = new LoopStmt(cond, body, Position.of(kwleft, kwright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("stmt",5, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-4)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -447,10 +459,13 @@ class CUP$parser$actions {
           case 13: // stmt ::= RETURN expr SEMICOLON 
             {
               Stmt RESULT =null;
+		int kwleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
+		int kwright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).right;
+		Void kw = (Void)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-2)).value;
 		int eleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left;
 		int eright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).right;
 		Expr e = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-1)).value;
-		 RESULT = new ReturnStmt(e); 
+		 RESULT = new ReturnStmt(e, Position.of(kwleft, kwright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("stmt",5, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -459,13 +474,16 @@ class CUP$parser$actions {
           case 14: // block ::= LEFT_BRACE declarations stmts RIGHT_BRACE 
             {
               BlockStmt RESULT =null;
+		int lbleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-3)).left;
+		int lbright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-3)).right;
+		Void lb = (Void)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-3)).value;
 		int declsleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
 		int declsright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).right;
 		List<VarDecl> decls = (List<VarDecl>)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-2)).value;
 		int sleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left;
 		int sright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).right;
 		List<Stmt> s = (List<Stmt>)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-1)).value;
-		 RESULT = new BlockStmt(decls, s); 
+		 RESULT = new BlockStmt(decls, s, Position.of(lbleft, lbright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("block",6, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-3)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -503,8 +521,8 @@ class CUP$parser$actions {
 		Type t = (Type)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-1)).value;
 		int idleft = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
 		int idright = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
-		String id = (String)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
-		 RESULT = new VarDecl(id, t); 
+		Integer id = (Integer)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
+		 RESULT = new VarDecl(id, parser.symbols().name(id), t, Position.of(idleft, idright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("declaration",8, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -567,10 +585,13 @@ class CUP$parser$actions {
 		int e1left = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
 		int e1right = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).right;
 		Expr e1 = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-2)).value;
+		int oleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left;
+		int oright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).right;
+		Void o = (Void)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-1)).value;
 		int e2left = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
 		int e2right = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
 		Expr e2 = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
-		 RESULT = new BinaryExpr(e1, Operator.ADD, e2); 
+		 RESULT = new BinaryExpr(e1, Operator.ADD, e2, Position.of(oleft, oright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("expr",11, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -582,10 +603,13 @@ class CUP$parser$actions {
 		int e1left = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
 		int e1right = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).right;
 		Expr e1 = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-2)).value;
+		int oleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left;
+		int oright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).right;
+		Void o = (Void)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-1)).value;
 		int e2left = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
 		int e2right = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
 		Expr e2 = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
-		 RESULT = new BinaryExpr(e1, Operator.SUB, e2); 
+		 RESULT = new BinaryExpr(e1, Operator.SUB, e2, Position.of(oleft, oright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("expr",11, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -597,10 +621,13 @@ class CUP$parser$actions {
 		int e1left = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
 		int e1right = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).right;
 		Expr e1 = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-2)).value;
+		int oleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left;
+		int oright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).right;
+		Void o = (Void)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-1)).value;
 		int e2left = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
 		int e2right = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
 		Expr e2 = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
-		 RESULT = new BinaryExpr(e1, Operator.MUL, e2); 
+		 RESULT = new BinaryExpr(e1, Operator.MUL, e2, Position.of(oleft, oright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("expr",11, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -612,10 +639,13 @@ class CUP$parser$actions {
 		int e1left = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
 		int e1right = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).right;
 		Expr e1 = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-2)).value;
+		int oleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left;
+		int oright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).right;
+		Void o = (Void)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-1)).value;
 		int e2left = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
 		int e2right = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
 		Expr e2 = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
-		 RESULT = new BinaryExpr(e1, Operator.DIV, e2); 
+		 RESULT = new BinaryExpr(e1, Operator.DIV, e2, Position.of(oleft, oright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("expr",11, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -627,10 +657,13 @@ class CUP$parser$actions {
 		int e1left = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
 		int e1right = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).right;
 		Expr e1 = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-2)).value;
+		int oleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left;
+		int oright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).right;
+		Void o = (Void)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-1)).value;
 		int e2left = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
 		int e2right = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
 		Expr e2 = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
-		 RESULT = new BinaryExpr(e1, Operator.EQ, e2); 
+		 RESULT = new BinaryExpr(e1, Operator.EQ, e2, Position.of(oleft, oright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("expr",11, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -642,10 +675,13 @@ class CUP$parser$actions {
 		int e1left = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
 		int e1right = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).right;
 		Expr e1 = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-2)).value;
+		int oleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left;
+		int oright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).right;
+		Void o = (Void)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-1)).value;
 		int e2left = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
 		int e2right = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
 		Expr e2 = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
-		 RESULT = new BinaryExpr(e1, Operator.LT, e2); 
+		 RESULT = new BinaryExpr(e1, Operator.LT, e2, Position.of(oleft, oright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("expr",11, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -657,10 +693,13 @@ class CUP$parser$actions {
 		int e1left = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
 		int e1right = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).right;
 		Expr e1 = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-2)).value;
+		int oleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left;
+		int oright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).right;
+		Void o = (Void)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-1)).value;
 		int e2left = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
 		int e2right = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
 		Expr e2 = (Expr)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
-		 RESULT = new BinaryExpr(e1, Operator.GT, e2); 
+		 RESULT = new BinaryExpr(e1, Operator.GT, e2, Position.of(oleft, oright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("expr",11, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -684,7 +723,7 @@ class CUP$parser$actions {
 		int ileft = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
 		int iright = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
 		Integer i = (Integer)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
-		 RESULT = new IntLiteral(i); 
+		 RESULT = new IntLiteral(i, Position.of(ileft, iright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("simple_expr",12, ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -693,7 +732,10 @@ class CUP$parser$actions {
           case 32: // simple_expr ::= TRUE 
             {
               Expr RESULT =null;
-		 RESULT = new BoolLiteral(true); 
+		int bleft = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
+		int bright = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
+		Void b = (Void)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
+		 RESULT = new BoolLiteral(true, Position.of(bleft, bright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("simple_expr",12, ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -702,7 +744,10 @@ class CUP$parser$actions {
           case 33: // simple_expr ::= FALSE 
             {
               Expr RESULT =null;
-		 RESULT = new BoolLiteral(false); 
+		int bleft = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
+		int bright = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
+		Void b = (Void)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
+		 RESULT = new BoolLiteral(false, Position.of(bleft, bright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("simple_expr",12, ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -713,8 +758,8 @@ class CUP$parser$actions {
               Expr RESULT =null;
 		int idleft = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).left;
 		int idright = ((java_cup.runtime.Symbol)CUP$parser$stack.peek()).right;
-		String id = (String)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
-		 RESULT = new IdExpr(id); 
+		Integer id = (Integer)((java_cup.runtime.Symbol) CUP$parser$stack.peek()).value;
+		 RESULT = new IdExpr(id, parser.symbols().name(id), Position.of(idleft, idright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("simple_expr",12, ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;
@@ -725,11 +770,11 @@ class CUP$parser$actions {
               Expr RESULT =null;
 		int nameleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-3)).left;
 		int nameright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-3)).right;
-		String name = (String)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-3)).value;
+		Integer name = (Integer)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-3)).value;
 		int aleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left;
 		int aright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).right;
 		List<Expr> a = (List<Expr>)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-1)).value;
-		 RESULT = new FuncCall(name, a); 
+		 RESULT = new FuncCall(name, parser.symbols().name(name), a, Position.of(nameleft, nameright)); 
               CUP$parser$result = parser.getSymbolFactory().newSymbol("simple_expr",12, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-3)), ((java_cup.runtime.Symbol)CUP$parser$stack.peek()), RESULT);
             }
           return CUP$parser$result;